@@ -0,0 +1,79 @@
+package simpleloginsystem.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import simpleloginsystem.MessageHashBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Regex-based message hash against the single-pass MessageHashBuilder.
+// Build with jmh-core and jmh-generator-annprocess on the classpath, then run main().
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageHashBenchmark {
+
+    @Param({"short", "long"})
+    public String textSize;
+
+    private String text;
+    private final MessageHashBuilder builder = new MessageHashBuilder();
+
+    @Setup
+    public void setUp() {
+        if ("short".equals(textSize)) {
+            text = "Hi Mike, can you join us for dinner tonight?";
+        } else {
+            StringBuilder sb = new StringBuilder("Hello,");
+            while (sb.length() < 250) {
+                sb.append(" lorem ipsum dolor");
+            }
+            text = sb.append(" goodbye!").toString();
+        }
+    }
+
+    @Benchmark
+    public String legacy() {
+        String firstTwoID = Long.toString(1234567890L).substring(0, 2);
+        String[] words = text.split("\\s+");
+        String firstWord = words.length > 0 ? words[0] : "";
+        String lastWord = words.length > 1 ? words[words.length - 1] : firstWord;
+        firstWord = firstWord.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        lastWord = lastWord.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        return firstTwoID + ":" + 7 + ":" + firstWord + lastWord;
+    }
+
+    @Benchmark
+    public String builder() {
+        return MessageHashBuilder.hash(1234567890L, 7, text);
+    }
+
+    // Reuses the buffer without creating a String
+    @Benchmark
+    public int builderNoString() {
+        return builder.build(1234567890L, 7, text).length();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MessageHashBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,95 @@
+package simpleloginsystem.bench;
+
+import simpleloginsystem.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Retained heap per message: the compact Message against the previous four-String layout.
+// Run main() with a fixed heap, e.g. java -Xms1g -Xmx1g simpleloginsystem.bench.MessageMemoryBenchmark [count].
+// Recipients and senders come from small pools, as in real traffic; each message gets its own
+// String instances for them, as it would when parsed from the journal.
+public class MessageMemoryBenchmark {
+    private static final int RECIPIENTS = 500;
+    private static final int SENDERS = 50;
+
+    // Keeps the measured objects reachable until the heap has been read
+    private static volatile Object sink;
+
+    // Field layout of Message before recipients and senders were dictionary-encoded
+    static final class LegacyMessage {
+        final String messageID;
+        final String recipient;
+        final String messageText;
+        final String messageHash;
+        final boolean isSent;
+        final String sender;
+
+        LegacyMessage(String messageID, String recipient, String messageText, String messageHash, String sender) {
+            this.messageID = messageID;
+            this.recipient = recipient;
+            this.messageText = messageText;
+            this.messageHash = messageHash;
+            this.isSent = true;
+            this.sender = sender;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        // Shared texts keep the comparison about per-message overhead rather than text content
+        String[] texts = {"Hi Mike, can you join us for dinner tonight?", "Did you get the cake?", "Ok"};
+
+        long legacy = measure(() -> {
+            List<Object> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Message source = new Message(recipient(i), texts[i % texts.length], i);
+                messages.add(new LegacyMessage(new String(source.getMessageID()), recipient(i),
+                        source.getMessageText(), new String(source.getMessageHash()), sender(i)));
+            }
+            return messages;
+        });
+        long compact = measure(() -> {
+            List<Object> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                // The sender is an int code on the message, so it adds nothing per message here
+                messages.add(new Message(recipient(i), texts[i % texts.length], i));
+            }
+            return messages;
+        });
+
+        System.out.printf("legacy layout:  %6.1f bytes/message%n", (double) legacy / count);
+        System.out.printf("compact layout: %6.1f bytes/message%n", (double) compact / count);
+        System.out.printf("reduction:      %6.1fx%n", (double) legacy / compact);
+    }
+
+    private static String recipient(int i) {
+        return new String("+2783" + (1000000 + i % RECIPIENTS));
+    }
+
+    private static String sender(int i) {
+        return new String("user" + (i % SENDERS));
+    }
+
+    interface Allocation {
+        Object run() throws Exception;
+    }
+
+    // Heap retained by whatever the allocation returns
+    private static long measure(Allocation allocation) throws Exception {
+        long before = usedHeap();
+        sink = allocation.run();
+        long after = usedHeap();
+        sink = null;
+        return after - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,108 @@
+package simpleloginsystem.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessageStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of a shared MessageStore as threads are added.
+// Build with jmh-core and jmh-generator-annprocess on the classpath, then run main():
+// it repeats every benchmark with 1, 2, 4 and 8 threads so the scaling is visible side by side.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageStoreBenchmark {
+    private static final int PRELOADED = 100_000;
+
+    private Path directory;
+    private MessageStore store;
+    private String[] ids;
+    private String[] recipients;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("store-bench");
+        // Adds to the sent list are in-memory only, so the journal stays idle
+        store = new MessageStore(new MessageJournal(directory.resolve("messages.jsonl"), null));
+        ids = new String[PRELOADED];
+        recipients = new String[64];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = "+278312345" + (10 + i);
+        }
+        for (int i = 0; i < PRELOADED; i++) {
+            Message msg = new Message(recipients[i % recipients.length], "Preloaded message number " + i, i);
+            store.addSentMessage(msg, "bench");
+            ids[i] = msg.getMessageID();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(directory.resolve("messages.jsonl"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void addSent() {
+        int n = ThreadLocalRandom.current().nextInt(1_000_000);
+        store.addSentMessage(new Message(recipients[n & 63], "Benchmark message " + n, n), "bench");
+    }
+
+    @Benchmark
+    public void searchById(Blackhole bh) {
+        bh.consume(store.searchByMessageId(ids[ThreadLocalRandom.current().nextInt(PRELOADED)]));
+    }
+
+    // 80% lookups, 15% adds, 5% add-then-delete, roughly a busy chat server
+    @Benchmark
+    public void mixed(Blackhole bh) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        if (roll < 80) {
+            bh.consume(store.searchByMessageId(ids[random.nextInt(PRELOADED)]));
+        } else if (roll < 95) {
+            addSent();
+        } else {
+            int n = random.nextInt(1_000_000);
+            Message msg = new Message(recipients[n & 63], "Short lived " + n, n);
+            store.addSentMessage(msg, "bench");
+            bh.consume(store.deleteByMessageHash(msg.getMessageHash()));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            Options options = new OptionsBuilder()
+                    .include(MessageStoreBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
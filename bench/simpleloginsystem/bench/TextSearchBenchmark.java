@@ -0,0 +1,107 @@
+package simpleloginsystem.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessagePage;
+import simpleloginsystem.MessageStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// First page of a word search through the text index, against scanning every message.
+// Build with jmh-core and jmh-generator-annprocess on the classpath, then run main()
+// (use -Xmx4g or more for the one-million-message case).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextSearchBenchmark {
+    private static final String[] WORDS = {
+            "dinner", "tonight", "cake", "fridge", "meeting", "call", "home", "late", "train", "station",
+            "order", "pickup", "ready", "tomorrow", "weekend", "party", "movie", "lunch", "office", "birthday"
+    };
+
+    @Param({"100000", "1000000"})
+    public int messages;
+
+    private Path directory;
+    private MessageStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("search-bench");
+        store = new MessageStore(new MessageJournal(directory.resolve("messages.jsonl"), null));
+        Random random = new Random(7);
+        for (int i = 0; i < messages; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(w == 7 ? "" : " ");
+            }
+            // A rare word, so the AND query has few matches
+            if (i % 1000 == 0) {
+                text.append(" anniversary");
+            }
+            store.addSentMessage(new Message("+27831234567", text.toString(), i), "bench");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(directory.resolve("messages.jsonl"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public MessagePage indexedAnd() {
+        return store.searchText("anniversary party", null, 20);
+    }
+
+    @Benchmark
+    public MessagePage indexedPrefixOr() {
+        return store.searchText("anniv* OR birthday cake movie", null, 20);
+    }
+
+    // What a search had to do before the index: look at every message
+    @Benchmark
+    public int scanAnd() {
+        int matches = 0;
+        for (Message message : store.getSentMessages()) {
+            String text = message.getMessageText().toLowerCase(Locale.ROOT);
+            if (text.contains("anniversary") && text.contains("party")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TextSearchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
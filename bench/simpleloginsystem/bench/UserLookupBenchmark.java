@@ -0,0 +1,81 @@
+package simpleloginsystem.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import simpleloginsystem.User;
+import simpleloginsystem.UserRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Login lookup with millions of users: the registry's hash index against the linear
+// scan UserService used to do over an ArrayList.
+// Build with jmh-core and jmh-generator-annprocess on the classpath, then run main().
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class UserLookupBenchmark {
+
+    @Param({"1000000", "5000000"})
+    public int users;
+
+    private final UserRegistry registry = new UserRegistry();
+    private final List<User> list = new ArrayList<>();
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        usernames = new String[users];
+        for (int i = 0; i < users; i++) {
+            usernames[i] = "u_" + i;
+            User user = new User("First", "Last", usernames[i], "Secret#" + i, "+27831234567");
+            registry.register(user);
+            list.add(user);
+        }
+    }
+
+    @Benchmark
+    public User registryLogin() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        User user = registry.find(usernames[i]);
+        return user != null && user.getPassword().equals("Secret#" + i) ? user : null;
+    }
+
+    @Benchmark
+    public User linearScanLogin() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        String username = usernames[i];
+        String password = "Secret#" + i;
+        for (User user : list) {
+            if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserLookupBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
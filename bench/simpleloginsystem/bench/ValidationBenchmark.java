@@ -0,0 +1,99 @@
+package simpleloginsystem.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import simpleloginsystem.ValidationEngine;
+import simpleloginsystem.ValidationError;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Registration and message-entry checks: the regex and toCharArray versions Login,
+// ValidationService and QuickChatApp used before, against ValidationEngine.
+// Build with jmh-core and jmh-generator-annprocess on the classpath, then run main().
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private final String[] passwords = {"Password123!", "nouppercase123!", "Short1!", "NoSpecial123"};
+    private final String[] numbers = {"+27831234567", "+2783123456", "27831234567", "+abc1234567"};
+    private final ValidationError[] results = new ValidationError[4];
+
+    @Benchmark
+    public void oldLoginPassword(Blackhole bh) {
+        for (String password : passwords) {
+            bh.consume(password.length() >= 8
+                    && Pattern.compile("[A-Z]").matcher(password).find()
+                    && Pattern.compile("[0-9]").matcher(password).find()
+                    && Pattern.compile("[^A-Za-z0-9]").matcher(password).find());
+        }
+    }
+
+    @Benchmark
+    public void oldServicePassword(Blackhole bh) {
+        for (String password : passwords) {
+            boolean valid = false;
+            if (password.length() >= 8) {
+                boolean hasCapital = false, hasNumber = false, hasSpecial = false;
+                for (char c : password.toCharArray()) {
+                    if (Character.isUpperCase(c)) hasCapital = true;
+                    else if (Character.isDigit(c)) hasNumber = true;
+                    else if (!Character.isLetterOrDigit(c)) hasSpecial = true;
+                }
+                valid = hasCapital && hasNumber && hasSpecial;
+            }
+            bh.consume(valid);
+        }
+    }
+
+    @Benchmark
+    public void enginePassword(Blackhole bh) {
+        bh.consume(ValidationEngine.checkAll(ValidationEngine.Field.PASSWORD, passwords, results));
+    }
+
+    @Benchmark
+    public void oldCellNumber(Blackhole bh) {
+        for (String number : numbers) {
+            bh.consume(Pattern.matches("^\\+\\d{1,3}\\d{7,10}$", number));
+        }
+    }
+
+    @Benchmark
+    public void oldRecipient(Blackhole bh) {
+        for (String number : numbers) {
+            bh.consume(number.matches("^\\+\\d{10}$"));
+        }
+    }
+
+    @Benchmark
+    public void engineCellNumber(Blackhole bh) {
+        bh.consume(ValidationEngine.checkAll(ValidationEngine.Field.CELL_NUMBER, numbers, results));
+    }
+
+    @Benchmark
+    public void engineRecipient(Blackhole bh) {
+        bh.consume(ValidationEngine.checkAll(ValidationEngine.Field.RECIPIENT, numbers, results));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ValidationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
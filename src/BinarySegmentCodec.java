@@ -0,0 +1,322 @@
+package simpleloginsystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+// Compact binary segment layout for journal records.
+//
+// File:   "QCMS" magic, u16 version, u16 flags, then records back to back
+// Record: i32 body length, body, i32 CRC32 of the body
+// Body:   u8 op, i64 messageID, i64 timestamp (epoch millis), and for messages
+//         u8 flags (bit 0 = sent), u8 recipient digit count, then the recipient as an i64
+//         (or a u16-length UTF-8 string when the count is 0), u16-length hash, i32-length text,
+//         for sent messages a u16-length sender, then i64 createdAt (epoch millis);
+//         for deletes the u8 op of the list the message is removed from.
+// Version 2 added the send and disregard record types, version 3 the createdAt field,
+// version 4 the list of a delete; messages from older records take their record timestamp
+// as createdAt, and older deletes apply to the stored list.
+public class BinarySegmentCodec implements RecordCodec {
+    public static final String EXTENSION = ".qcs";
+    public static final short VERSION = 4;
+
+    private static final byte[] MAGIC = {'Q', 'C', 'M', 'S'};
+    private static final int HEADER_SIZE = 8;
+    private static final byte OP_STORE = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_SEND = 3;
+    private static final byte OP_DISREGARD = 4;
+    private static final int FLAG_SENT = 1;
+    private static final int MAX_PACKED_DIGITS = 18;
+    private static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    public byte[] header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putShort(VERSION).putShort((short) 0);
+        return header.array();
+    }
+
+    public byte[] encode(JournalRecord record) {
+        long messageID = parseMessageID(record.getMessageID());
+
+        if (record.isDelete()) {
+            ByteBuffer frame = newFrame(1 + 8 + 8 + 1);
+            frame.put(OP_DELETE).putLong(messageID).putLong(record.getTimestamp()).put(opCode(record.getList()));
+            return finishFrame(frame);
+        }
+
+        Message message = record.getMessage();
+        String recipient = message.getRecipient();
+        int digits = packableDigits(recipient);
+        byte[] recipientBytes = digits == 0 ? recipient.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] hashBytes = message.getMessageHash().getBytes(StandardCharsets.UTF_8);
+        byte[] textBytes = message.getMessageText().getBytes(StandardCharsets.UTF_8);
+        byte[] senderBytes = record.getOp() == JournalRecord.Op.SEND
+                ? String.valueOf(record.getSender()).getBytes(StandardCharsets.UTF_8) : null;
+        if (hashBytes.length > 0xFFFF || (recipientBytes != null && recipientBytes.length > 0xFFFF)
+                || (senderBytes != null && senderBytes.length > 0xFFFF)) {
+            throw new IllegalArgumentException("Message hash, recipient or sender is too long for a segment record");
+        }
+
+        int bodySize = 1 + 8 + 8 + 1 + 1
+                + (digits == 0 ? 2 + recipientBytes.length : 8)
+                + 2 + hashBytes.length
+                + 4 + textBytes.length
+                + (senderBytes == null ? 0 : 2 + senderBytes.length)
+                + 8;
+        ByteBuffer frame = newFrame(bodySize);
+        frame.put(opCode(record.getOp())).putLong(messageID).putLong(record.getTimestamp());
+        frame.put((byte) (message.isSent() ? FLAG_SENT : 0));
+        frame.put((byte) digits);
+        if (digits == 0) {
+            frame.putShort((short) recipientBytes.length).put(recipientBytes);
+        } else {
+            frame.putLong(Long.parseLong(recipient.substring(1)));
+        }
+        frame.putShort((short) hashBytes.length).put(hashBytes);
+        frame.putInt(textBytes.length).put(textBytes);
+        if (senderBytes != null) {
+            frame.putShort((short) senderBytes.length).put(senderBytes);
+        }
+        frame.putLong(message.getCreatedAt());
+        return finishFrame(frame);
+    }
+
+    public JournalRecord decode(byte[] frame, int length) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(frame, 0, length);
+        int bodySize = in.getInt();
+        if (bodySize + 8 != length) {
+            throw new IOException("Segment record length does not match its frame");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(frame, 4, bodySize);
+        if ((int) crc.getValue() != in.getInt(4 + bodySize)) {
+            throw new IOException("Segment record checksum mismatch");
+        }
+
+        try {
+            byte op = in.get();
+            long messageID = in.getLong();
+            long timestamp = in.getLong();
+            if (op == OP_DELETE) {
+                byte list = in.position() < 4 + bodySize ? in.get() : OP_STORE;
+                return JournalRecord.delete(String.valueOf(messageID), listOp(list), timestamp);
+            }
+            if (op != OP_STORE && op != OP_SEND && op != OP_DISREGARD) {
+                throw new IOException("Unknown segment record type " + op);
+            }
+
+            boolean sent = (in.get() & FLAG_SENT) != 0;
+            int digits = in.get();
+            String recipient;
+            if (digits == 0) {
+                recipient = readString(in, in.getShort() & 0xFFFF);
+            } else {
+                recipient = "+" + padDigits(in.getLong(), digits);
+            }
+            String messageHash = readString(in, in.getShort() & 0xFFFF);
+            String messageText = readString(in, in.getInt());
+
+            String sender = op == OP_SEND ? readString(in, in.getShort() & 0xFFFF) : null;
+            // The body ends before the trailing CRC; pre-version-3 bodies stop here
+            long createdAt = in.position() + 8 <= 4 + bodySize ? in.getLong() : timestamp;
+
+            Message message = Message.restore(messageID, recipient, messageText, messageHash, sent, createdAt);
+            if (op == OP_SEND) {
+                return JournalRecord.send(message, sender, timestamp);
+            }
+            if (op == OP_DISREGARD) {
+                return JournalRecord.disregard(message, timestamp);
+            }
+            return JournalRecord.store(message, timestamp);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed segment record: " + e.getMessage(), e);
+        }
+    }
+
+    public long forEachFrame(FileChannel in, long limit, FrameHandler handler) throws IOException {
+        FrameInput input = new FrameInput(in, limit);
+        byte[] header = new byte[HEADER_SIZE];
+        if (!input.read(header, 0, HEADER_SIZE)) {
+            return 0;
+        }
+        checkHeader(header);
+
+        long validEnd = HEADER_SIZE;
+        byte[] frame = new byte[512];
+        while (input.read(frame, 0, 4)) {
+            int bodySize = ByteBuffer.wrap(frame, 0, 4).getInt();
+            if (bodySize <= 0 || bodySize > MAX_BODY_SIZE) {
+                // The length itself is garbage, so nothing after it can be trusted
+                break;
+            }
+            int frameSize = bodySize + 8;
+            if (frame.length < frameSize) {
+                byte[] bigger = new byte[Math.max(frameSize, frame.length * 2)];
+                System.arraycopy(frame, 0, bigger, 0, 4);
+                frame = bigger;
+            }
+            if (!input.read(frame, 4, frameSize - 4)) {
+                break;
+            }
+            validEnd += frameSize;
+            handler.frame(frame, frameSize);
+        }
+        return validEnd;
+    }
+
+    // New files get a header; a torn record at the end is cut off
+    public void prepareForAppend(FileChannel channel, Path path, long validLength) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            channel.write(ByteBuffer.wrap(header()));
+            return;
+        }
+        if (validLength < 0) {
+            try (FileChannel in = FileChannel.open(path)) {
+                validLength = forEachFrame(in, Long.MAX_VALUE, (frame, length) -> { });
+            }
+        }
+        if (validLength < HEADER_SIZE) {
+            throw new IOException(path + " does not start with a message segment header");
+        }
+        if (validLength < size) {
+            channel.truncate(validLength);
+        }
+    }
+
+    private static void checkHeader(byte[] header) throws IOException {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                throw new IOException("Not a QuickChat message segment");
+            }
+        }
+        short version = ByteBuffer.wrap(header, 4, 2).getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported message segment version " + version);
+        }
+    }
+
+    private static byte opCode(JournalRecord.Op op) {
+        switch (op) {
+            case SEND:
+                return OP_SEND;
+            case DISREGARD:
+                return OP_DISREGARD;
+            default:
+                return OP_STORE;
+        }
+    }
+
+    private static JournalRecord.Op listOp(byte code) throws IOException {
+        switch (code) {
+            case OP_STORE:
+                return JournalRecord.Op.STORE;
+            case OP_SEND:
+                return JournalRecord.Op.SEND;
+            case OP_DISREGARD:
+                return JournalRecord.Op.DISREGARD;
+            default:
+                throw new IOException("Unknown list in segment delete " + code);
+        }
+    }
+
+    private static long parseMessageID(String messageID) {
+        try {
+            return Long.parseLong(messageID);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Message ID is not numeric: " + messageID);
+        }
+    }
+
+    // Recipients like +27831234567 are stored as a number plus a digit count (keeps leading zeros)
+    private static int packableDigits(String recipient) {
+        int digits = recipient.length() - 1;
+        if (!recipient.startsWith("+") || digits < 1 || digits > MAX_PACKED_DIGITS) {
+            return 0;
+        }
+        for (int i = 1; i < recipient.length(); i++) {
+            char c = recipient.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+        }
+        return digits;
+    }
+
+    private static String padDigits(long value, int digits) {
+        String number = Long.toString(value);
+        if (number.length() >= digits) {
+            return number;
+        }
+        StringBuilder sb = new StringBuilder(digits);
+        for (int i = number.length(); i < digits; i++) {
+            sb.append('0');
+        }
+        return sb.append(number).toString();
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer newFrame(int bodySize) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + bodySize + 4);
+        frame.putInt(bodySize);
+        return frame;
+    }
+
+    private static byte[] finishFrame(ByteBuffer frame) {
+        int bodySize = frame.position() - 4;
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 4, bodySize);
+        frame.putInt((int) crc.getValue());
+        return frame.array();
+    }
+
+    // Sequential reads through one reused buffer, stopping at limit bytes
+    private static class FrameInput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private long remaining;
+
+        FrameInput(FileChannel channel, long limit) {
+            this.channel = channel;
+            this.remaining = limit;
+            buffer.flip();
+        }
+
+        // Returns false when the data ends before length bytes were read
+        boolean read(byte[] dst, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    buffer.clear();
+                    if (remaining < buffer.capacity()) {
+                        buffer.limit((int) remaining);
+                    }
+                    int read = channel.read(buffer);
+                    buffer.flip();
+                    if (read <= 0) {
+                        return false;
+                    }
+                    remaining -= read;
+                }
+                int n = Math.min(length, buffer.remaining());
+                buffer.get(dst, offset, n);
+                offset += n;
+                length -= n;
+            }
+            return true;
+        }
+    }
+}
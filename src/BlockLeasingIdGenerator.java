@@ -0,0 +1,154 @@
+package simpleloginsystem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Base for generators that hand each thread a block of consecutive positions, so the shared
+// state is touched once per block and nextId() neither allocates nor contends in between.
+// Positions are mapped to IDs by the subclass; reserved IDs are skipped.
+// Leased positions only ever increase. With mark files they survive restarts: before any
+// position past the saved high-water mark is used, a new mark some blocks further on is
+// written to each file, and a run that adds the file starts from it. Positions between the
+// last lease and the mark are skipped.
+public abstract class BlockLeasingIdGenerator implements MessageIdGenerator {
+    // How many blocks past the leased ones each saved mark reaches, so the file is written rarely
+    private static final int MARK_AHEAD_BLOCKS = 64;
+
+    // Per thread: next position, end of the leased block (exclusive)
+    private final ThreadLocal<long[]> blocks = ThreadLocal.withInitial(() -> new long[2]);
+    // Sorted, replaced as a whole when more IDs are reserved
+    private volatile long[] reserved = new long[0];
+    // Usually one per store directory that keeps messages with these IDs
+    private final List<Path> markFiles = new CopyOnWriteArrayList<>();
+    private volatile long savedMark;
+
+    public long nextId() {
+        long[] block = blocks.get();
+        while (true) {
+            if (block[0] == block[1]) {
+                block[0] = leaseBlock();
+                block[1] = block[0] + blockSize();
+                if (block[1] > savedMark && !markFiles.isEmpty()) {
+                    saveMarkPast(block[1]);
+                }
+            }
+            long id = toId(block[0]++);
+            if (Arrays.binarySearch(reserved, id) < 0) {
+                return id;
+            }
+        }
+    }
+
+    // Reserving an ID again is a no-op, so stores reloading the same messages add nothing
+    public synchronized void reserve(long[] ids, int count) {
+        if (count == 0) {
+            return;
+        }
+        long[] added = Arrays.copyOf(ids, count);
+        Arrays.sort(added);
+        long[] current = reserved;
+        long[] merged = new long[current.length + count];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < current.length || j < count) {
+            long next = j == count || (i < current.length && current[i] <= added[j]) ? current[i++] : added[j++];
+            if (size == 0 || merged[size - 1] != next) {
+                merged[size++] = next;
+            }
+        }
+        if (size > current.length) {
+            reserved = Arrays.copyOf(merged, size);
+        }
+    }
+
+    // Distinct IDs reserved so far
+    public int getReservedCount() {
+        return reserved.length;
+    }
+
+    public synchronized void addMarkFile(Path markFile) {
+        if (markFiles.contains(markFile)) {
+            return;
+        }
+        skipTo(readMark(markFile));
+        markFiles.add(markFile);
+        // The new file must also cover what this run has leased already
+        writeMark(Math.max(savedMark, nextPosition() + (long) MARK_AHEAD_BLOCKS * blockSize()));
+    }
+
+    public synchronized void removeMarkFile(Path markFile) {
+        markFiles.remove(markFile);
+    }
+
+    // Returns once a mark at or past end is on disk
+    private synchronized void saveMarkPast(long end) {
+        if (end <= savedMark) {
+            return;
+        }
+        writeMark(end + (long) MARK_AHEAD_BLOCKS * blockSize());
+    }
+
+    private void writeMark(long mark) {
+        for (Path markFile : markFiles) {
+            Path directory = markFile.toAbsolutePath().getParent();
+            if (directory != null && !Files.isDirectory(directory)) {
+                // Its store is gone, so no message with these IDs can be reloaded from there
+                markFiles.remove(markFile);
+                continue;
+            }
+            Path temp = markFile.resolveSibling(markFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap((mark + "\n").getBytes(StandardCharsets.US_ASCII)));
+                channel.force(true);
+            } catch (IOException e) {
+                // Handing out IDs the next run could issue again is worse than failing now
+                throw new UncheckedIOException("Error saving message ID mark", e);
+            }
+            try {
+                Files.move(temp, markFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error saving message ID mark", e);
+            }
+        }
+        savedMark = mark;
+    }
+
+    private static long readMark(Path markFile) {
+        if (!Files.exists(markFile)) {
+            return 0;
+        }
+        try {
+            String text = new String(Files.readAllBytes(markFile), StandardCharsets.US_ASCII).trim();
+            return Long.parseLong(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading message ID mark", e);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Unreadable message ID mark in " + markFile);
+        }
+    }
+
+    // Leases from now on start at or after position
+    protected abstract void skipTo(long position);
+
+    // End of the positions leased so far
+    protected abstract long nextPosition();
+
+    // First position of a fresh block of blockSize() positions
+    protected abstract long leaseBlock();
+
+    protected abstract int blockSize();
+
+    protected abstract long toId(long position);
+}
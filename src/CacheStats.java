@@ -0,0 +1,46 @@
+package simpleloginsystem;
+
+// Figures from a memory-bounded store's hot message cache, for sizing it
+public class CacheStats {
+    private final int capacity;
+    private final int hotMessages;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long coldBytes;
+
+    public CacheStats(int capacity, int hotMessages, long hits, long misses, long evictions, long coldBytes) {
+        this.capacity = capacity;
+        this.hotMessages = hotMessages;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.coldBytes = coldBytes;
+    }
+
+    // A store without a cache keeps everything hot
+    public static CacheStats empty() {
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    // Getters
+    public int getCapacity() { return capacity; }
+    public int getHotMessages() { return hotMessages; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    // Text bytes currently spilled to disk
+    public long getColdBytes() { return coldBytes; }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return hotMessages + "/" + capacity + " messages hot, " + hits + " hits, " + misses + " misses ("
+                + String.format("%.1f", getHitRate() * 100) + "% hit rate), " + evictions + " evictions, "
+                + coldBytes + " bytes on disk";
+    }
+}
@@ -0,0 +1,74 @@
+package simpleloginsystem;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs password hashing and verification on its own small pool, so slow hashes never
+// tie up the threads serving requests. The queue is bounded: when it is full, new work
+// is shed at once (the future fails with RejectedExecutionException) instead of piling
+// up behind a backlog whose callers have long since given up.
+public class CredentialPipeline implements AutoCloseable {
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder shed = new LongAdder();
+
+    // One thread per core, with up to 64 waiting requests per thread
+    public CredentialPipeline(PasswordHasher hasher) {
+        this(hasher, Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 64);
+    }
+
+    public CredentialPipeline(PasswordHasher hasher, int threads, int queueLimit) {
+        if (threads < 1 || queueLimit < 1) {
+            throw new IllegalArgumentException("Threads and queue limit must be at least 1");
+        }
+        this.hasher = hasher;
+        int pool = POOL_NUMBER.incrementAndGet();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread thread = new Thread(r, "credentials-" + pool + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public PasswordHasher getHasher() { return hasher; }
+
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> hasher.hash(password));
+    }
+
+    public CompletableFuture<Boolean> verify(String password, String stored) {
+        return submit(() -> hasher.verify(password, stored));
+    }
+
+    // Any other credential work, e.g. verify-then-upgrade as one task
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            shed.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Requests turned away because the queue was full (or the pipeline closed)
+    public long getShed() { return shed.sum(); }
+
+    public int getQueued() { return executor.getQueue().size(); }
+
+    public long getCompleted() { return executor.getCompletedTaskCount(); }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
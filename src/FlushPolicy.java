@@ -0,0 +1,52 @@
+package simpleloginsystem;
+
+// Controls when the journal writer flushes queued records to disk
+public class FlushPolicy {
+    public enum Mode { SYNC, BATCH_SIZE, TIME_WINDOW }
+
+    private static final int DEFAULT_MAX_BATCH = 1024;
+
+    private final Mode mode;
+    private final int maxBatchSize;
+    private final long windowMillis;
+
+    private FlushPolicy(Mode mode, int maxBatchSize, long windowMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Time window cannot be negative");
+        }
+        this.mode = mode;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = windowMillis;
+    }
+
+    // Write and fsync every record on the calling thread
+    public static FlushPolicy sync() {
+        return new FlushPolicy(Mode.SYNC, 1, 0);
+    }
+
+    // Flush whatever is queued, up to maxBatchSize records per fsync
+    public static FlushPolicy batchSize(int maxBatchSize) {
+        return new FlushPolicy(Mode.BATCH_SIZE, maxBatchSize, 0);
+    }
+
+    // Collect records for up to windowMillis after the first one, then flush
+    public static FlushPolicy timeWindow(long windowMillis) {
+        return new FlushPolicy(Mode.TIME_WINDOW, DEFAULT_MAX_BATCH, windowMillis);
+    }
+
+    public static FlushPolicy timeWindow(long windowMillis, int maxBatchSize) {
+        return new FlushPolicy(Mode.TIME_WINDOW, maxBatchSize, windowMillis);
+    }
+
+    public Mode getMode() { return mode; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public long getWindowMillis() { return windowMillis; }
+
+    @Override
+    public String toString() {
+        return mode + "(maxBatch=" + maxBatchSize + ", windowMillis=" + windowMillis + ")";
+    }
+}
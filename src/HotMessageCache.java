@@ -0,0 +1,180 @@
+package simpleloginsystem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Decides which messages keep their text on the heap. At most capacity messages are hot;
+// when one more arrives, the loser is evicted and its text spilled to a file-backed
+// TextArena, to be faulted back in the next time the message is looked up.
+//
+// The policy is W-TinyLFU: newcomers enter a small LRU window, and whatever falls out of
+// the window must have been used more often than the main area's LRU victim to displace
+// it. Use counts come from a small count-min sketch that is halved now and then, so old
+// popularity fades. A one-off scan over many messages therefore cannot flush the hot set.
+public class HotMessageCache {
+    private final int capacity;
+    private final int windowCapacity;
+    private final TextArena coldText;
+    // Access-ordered: the first entry is the least recently used
+    private final LinkedHashMap<Message, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Message, Boolean> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public HotMessageCache(int capacity, TextArena coldText) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        // 1% window, as in the W-TinyLFU paper
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.coldText = coldText;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    // A message new to the store: hot until the policy says otherwise
+    public synchronized void admit(Message message) {
+        sketch.increment(message);
+        if (window.get(message) != null || main.get(message) != null) {
+            return;
+        }
+        window.put(message, Boolean.TRUE);
+        evictIfFull();
+    }
+
+    // A lookup of message; on a miss its text is read back from disk. Returns whether it was hot.
+    public synchronized boolean touch(Message message) {
+        sketch.increment(message);
+        if (window.get(message) != null || main.get(message) != null) {
+            hits++;
+            return true;
+        }
+        misses++;
+        message.releaseText(coldText);
+        window.put(message, Boolean.TRUE);
+        evictIfFull();
+        return false;
+    }
+
+    // The message left the store; its text goes back to the heap for anyone still holding it
+    public synchronized void remove(Message message) {
+        if (window.remove(message) == null) {
+            main.remove(message);
+        }
+        message.releaseText(coldText);
+    }
+
+    private void evictIfFull() {
+        if (window.size() <= windowCapacity) {
+            return;
+        }
+        Message candidate = removeEldest(window);
+        if (main.size() < capacity - windowCapacity) {
+            main.put(candidate, Boolean.TRUE);
+            return;
+        }
+        Message victim = main.keySet().iterator().next();
+        // Ties go to the incumbent, which keeps the main area stable under scans
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            main.remove(victim);
+            main.put(candidate, Boolean.TRUE);
+            spill(victim);
+        } else {
+            spill(candidate);
+        }
+    }
+
+    private void spill(Message message) {
+        message.moveTextTo(coldText);
+        evictions++;
+    }
+
+    private static Message removeEldest(LinkedHashMap<Message, Boolean> lru) {
+        Iterator<Map.Entry<Message, Boolean>> it = lru.entrySet().iterator();
+        Message eldest = it.next().getKey();
+        it.remove();
+        return eldest;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(capacity, window.size() + main.size(), hits, misses, evictions,
+                coldText.getUsedBytes());
+    }
+
+    // Count-min sketch of 4-bit counters, two to a byte: four rows, each message counted once
+    // per row, its estimate the smallest of its counters. Every counter is halved after
+    // 10 * capacity increments.
+    private static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final long[] SEEDS = {
+                0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+        // Counter i of a row is the low nibble of byte i / 2 if i is even, else the high one
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            // Room for the many one-off messages seen between halvings, not just the hot ones
+            int width = Integer.highestOneBit(Math.max(16, capacity - 1)) << 5;
+            counters = new byte[ROWS][width / 2];
+            mask = width - 1;
+            sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        void increment(Message message) {
+            long hash = spread(message.getId());
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                if (count(row, index) < MAX_COUNT) {
+                    counters[row][index >>> 1] += (byte) (1 << shift(index));
+                }
+            }
+            if (++additions == sampleSize) {
+                halve();
+            }
+        }
+
+        int frequency(Message message) {
+            long hash = spread(message.getId());
+            int min = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                min = Math.min(min, count(row, index(hash, row)));
+            }
+            return min;
+        }
+
+        private int count(int row, int index) {
+            return (counters[row][index >>> 1] >>> shift(index)) & 0xF;
+        }
+
+        private static int shift(int index) {
+            return (index & 1) << 2;
+        }
+
+        // Both nibbles at once; the mask drops the bit each high nibble shifts into the low one
+        private void halve() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) ((row[i] >>> 1) & 0x77);
+                }
+            }
+            additions /= 2;
+        }
+
+        // An independent position per row
+        private int index(long hash, int row) {
+            return (int) ((hash * SEEDS[row]) >>> 32) & mask;
+        }
+
+        private static long spread(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+    }
+}
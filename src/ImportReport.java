@@ -0,0 +1,41 @@
+package simpleloginsystem;
+
+import java.util.Collections;
+import java.util.List;
+
+// Figures from one bulk import: what was accepted and rejected, and how fast it went
+public class ImportReport {
+    private final long importedMessages;
+    private final long rejectedLines;
+    private final long bytesRead;
+    private final long elapsedNanos;
+    private final List<String> rejections;
+
+    public ImportReport(long importedMessages, long rejectedLines, long bytesRead, long elapsedNanos,
+                        List<String> rejections) {
+        this.importedMessages = importedMessages;
+        this.rejectedLines = rejectedLines;
+        this.bytesRead = bytesRead;
+        this.elapsedNanos = elapsedNanos;
+        this.rejections = Collections.unmodifiableList(rejections);
+    }
+
+    // Getters
+    public long getImportedMessages() { return importedMessages; }
+    public long getRejectedLines() { return rejectedLines; }
+    public long getBytesRead() { return bytesRead; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+    // "line N: reason" for the first rejected lines (at most MessageImporter.MAX_REPORTED_REJECTIONS)
+    public List<String> getRejections() { return rejections; }
+
+    public double getMessagesPerSecond() {
+        return elapsedNanos == 0 ? 0 : importedMessages * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d messages (%d lines rejected, %d bytes) in %d ms: %.0f messages/s",
+                importedMessages, rejectedLines, bytesRead, getElapsedMillis(), getMessagesPerSecond());
+    }
+}
@@ -0,0 +1,63 @@
+package simpleloginsystem;
+
+// One entry in the message journal: a message added to one of the store's lists,
+// or a tombstone for a deleted one. A tombstone names the list it deletes from, since the
+// same message can be in both the sent and the stored list.
+public class JournalRecord {
+    public enum Op { STORE, DELETE, SEND, DISREGARD }
+
+    private final Op op;
+    private final String messageID;
+    private final Message message;
+    private final String sender;
+    private final long timestamp;
+    private final Op list;
+
+    private JournalRecord(Op op, String messageID, Message message, String sender, long timestamp) {
+        this(op, messageID, message, sender, timestamp, op);
+    }
+
+    private JournalRecord(Op op, String messageID, Message message, String sender, long timestamp, Op list) {
+        this.op = op;
+        this.list = list;
+        this.messageID = messageID;
+        this.message = message;
+        this.sender = sender;
+        this.timestamp = timestamp;
+    }
+
+    public static JournalRecord store(Message message, long timestamp) {
+        return new JournalRecord(Op.STORE, message.getMessageID(), message, null, timestamp);
+    }
+
+    public static JournalRecord send(Message message, String sender, long timestamp) {
+        return new JournalRecord(Op.SEND, message.getMessageID(), message, sender, timestamp);
+    }
+
+    public static JournalRecord disregard(Message message, long timestamp) {
+        return new JournalRecord(Op.DISREGARD, message.getMessageID(), message, null, timestamp);
+    }
+
+    // Deletes from the stored list
+    public static JournalRecord delete(String messageID, long timestamp) {
+        return delete(messageID, Op.STORE, timestamp);
+    }
+
+    // list is the op that added the message: STORE, SEND or DISREGARD
+    public static JournalRecord delete(String messageID, Op list, long timestamp) {
+        if (list == Op.DELETE) {
+            throw new IllegalArgumentException("A delete must name the list it deletes from");
+        }
+        return new JournalRecord(Op.DELETE, messageID, null, null, timestamp, list);
+    }
+
+    // Getters
+    public Op getOp() { return op; }
+    public String getMessageID() { return messageID; }
+    public Message getMessage() { return message; }
+    public String getSender() { return sender; }
+    public long getTimestamp() { return timestamp; }
+    // The list a message was added to, or for a delete the list it was removed from
+    public Op getList() { return list; }
+    public boolean isDelete() { return op == Op.DELETE; }
+}
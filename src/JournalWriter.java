@@ -0,0 +1,197 @@
+package simpleloginsystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Background writer that group-commits journal records: one write and one fsync per batch
+public class JournalWriter {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final MessageJournal journal;
+    private final FlushPolicy policy;
+    private final BlockingQueue<PendingRecord> queue;
+    private final Thread thread;
+    // Held while checking running and queueing, so close() cannot slip in between
+    private final Object admission = new Object();
+    private volatile boolean running;
+    private ByteBuffer buffer;
+
+    // A record waiting to be written, completed once it has been fsynced
+    private static class PendingRecord {
+        final byte[] frame;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        PendingRecord(byte[] frame) {
+            this.frame = frame;
+        }
+    }
+
+    public JournalWriter(MessageJournal journal, FlushPolicy policy) {
+        this.journal = journal;
+        this.policy = policy;
+        this.queue = new LinkedBlockingQueue<>();
+        this.buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        this.running = true;
+
+        if (policy.getMode() == FlushPolicy.Mode.SYNC) {
+            this.thread = null;
+        } else {
+            this.thread = new Thread(this::run, "journal-writer");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    // Queue an encoded record; the future completes once it is durable on disk
+    public CompletableFuture<Void> submit(byte[] frame) {
+        PendingRecord pending = new PendingRecord(frame);
+
+        if (!running) {
+            pending.durable.completeExceptionally(new IOException("Journal writer is closed"));
+            return pending.durable;
+        }
+
+        if (thread == null) {
+            List<PendingRecord> batch = new ArrayList<>(1);
+            batch.add(pending);
+            synchronized (this) {
+                flush(batch);
+            }
+            return pending.durable;
+        }
+
+        synchronized (admission) {
+            if (!running) {
+                pending.durable.completeExceptionally(new IOException("Journal writer is closed"));
+            } else {
+                queue.add(pending);
+            }
+        }
+        return pending.durable;
+    }
+
+    // Completes once every record submitted before it is durable
+    public CompletableFuture<Void> barrier() {
+        if (thread == null || !running) {
+            return CompletableFuture.completedFuture(null);
+        }
+        PendingRecord marker = new PendingRecord(new byte[0]);
+        synchronized (admission) {
+            if (!running) {
+                return CompletableFuture.completedFuture(null);
+            }
+            queue.add(marker);
+        }
+        return marker.durable;
+    }
+
+    public FlushPolicy getPolicy() { return policy; }
+
+    // Stop accepting records, flush everything still queued and stop the thread
+    public void close() {
+        // Once this returns no record can be queued, so the drain below is the last one needed
+        synchronized (admission) {
+            running = false;
+        }
+        if (thread != null) {
+            // No interrupt here: it would close the FileChannel under an in-flight write
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Anything queued after the writer thread took its last batch is written here
+        List<PendingRecord> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            synchronized (this) {
+                flush(leftover);
+            }
+        }
+    }
+
+    private void run() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                synchronized (this) {
+                    flush(batch);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // Fill the batch according to the flush policy
+    private void collect(List<PendingRecord> batch) throws InterruptedException {
+        int maxBatch = policy.getMaxBatchSize();
+        if (policy.getMode() == FlushPolicy.Mode.BATCH_SIZE) {
+            queue.drainTo(batch, maxBatch - batch.size());
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getWindowMillis());
+        while (batch.size() < maxBatch) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatch - batch.size());
+        }
+    }
+
+    // Write the whole batch with one channel write and one fsync
+    private void flush(List<PendingRecord> batch) {
+        int size = 0;
+        for (PendingRecord pending : batch) {
+            size += pending.frame.length;
+        }
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+        }
+
+        buffer.clear();
+        for (PendingRecord pending : batch) {
+            buffer.put(pending.frame);
+        }
+        buffer.flip();
+
+        try {
+            journal.write(buffer);
+            journal.force();
+            for (PendingRecord pending : batch) {
+                pending.durable.complete(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fail the batch rather than the writer thread, so no caller waits forever
+            for (PendingRecord pending : batch) {
+                pending.durable.completeExceptionally(e);
+            }
+        }
+    }
+}
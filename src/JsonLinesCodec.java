@@ -0,0 +1,163 @@
+package simpleloginsystem;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+// One JSON object per line; deletes are {"op":"delete","messageID":...}.
+// Sent and disregarded messages carry "op":"send" (with "sender") or "op":"disregard",
+// and so do deletes from those lists, as "list". A message's "timestamp" is its creation
+// time; the time the record was written goes in "writtenAt" (older lines have only "timestamp").
+public class JsonLinesCodec implements RecordCodec {
+    private static final String OP_DELETE = "delete";
+    private static final String OP_SEND = "send";
+    private static final String OP_DISREGARD = "disregard";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    public byte[] header() {
+        return new byte[0];
+    }
+
+    public byte[] encode(JournalRecord record) {
+        JSONObject json;
+        if (record.isDelete()) {
+            json = new JSONObject();
+            json.put("op", OP_DELETE);
+            json.put("messageID", record.getMessageID());
+            if (record.getList() == JournalRecord.Op.SEND) {
+                json.put("list", OP_SEND);
+            } else if (record.getList() == JournalRecord.Op.DISREGARD) {
+                json.put("list", OP_DISREGARD);
+            }
+        } else {
+            json = record.getMessage().toJSON();
+            if (record.getTimestamp() > 0) {
+                json.put("writtenAt", formatTimestamp(record.getTimestamp()));
+            }
+            // Plain stored messages keep the original layout without an op
+            if (record.getOp() == JournalRecord.Op.SEND) {
+                json.put("op", OP_SEND);
+                json.put("sender", record.getSender());
+            } else if (record.getOp() == JournalRecord.Op.DISREGARD) {
+                json.put("op", OP_DISREGARD);
+            }
+        }
+        return (json.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public JournalRecord decode(byte[] frame, int length) throws IOException {
+        String line = new String(frame, 0, length, StandardCharsets.UTF_8).trim();
+        if (line.isEmpty()) {
+            return null;
+        }
+        try {
+            return fromJSON(new JSONObject(line));
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    // Records from the old messages.json array use the same object layout
+    public static JournalRecord fromJSON(JSONObject json) {
+        long timestamp = parseTimestamp(json.optString("writtenAt", json.optString("timestamp", "")));
+        String op = json.optString("op");
+        if (OP_DELETE.equals(op)) {
+            String list = json.optString("list");
+            JournalRecord.Op from = OP_SEND.equals(list) ? JournalRecord.Op.SEND
+                    : OP_DISREGARD.equals(list) ? JournalRecord.Op.DISREGARD : JournalRecord.Op.STORE;
+            return JournalRecord.delete(json.optString("messageID"), from, timestamp);
+        }
+        if (OP_SEND.equals(op)) {
+            return JournalRecord.send(Message.fromJSON(json), json.optString("sender", null), timestamp);
+        }
+        if (OP_DISREGARD.equals(op)) {
+            return JournalRecord.disregard(Message.fromJSON(json), timestamp);
+        }
+        return JournalRecord.store(Message.fromJSON(json), timestamp);
+    }
+
+    // Timestamps are stored as local date-times, as the original storeMessage() wrote them
+    public static long parseTimestamp(String value) {
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    public static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).toString();
+    }
+
+    public long forEachFrame(FileChannel in, long limit, FrameHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        byte[] line = new byte[512];
+        int lineLength = 0;
+        long position = 0;
+
+        long remaining = limit;
+        while (remaining > 0) {
+            buffer.clear();
+            if (remaining < buffer.capacity()) {
+                buffer.limit((int) remaining);
+            }
+            int read = in.read(buffer);
+            if (read == -1) {
+                break;
+            }
+            remaining -= read;
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+                position++;
+                if (b == '\n') {
+                    handler.frame(line, lineLength);
+                    lineLength = 0;
+                }
+            }
+        }
+
+        // A last line without a newline is still handed over, terminated like the others
+        if (lineLength > 0) {
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length + 1);
+            }
+            line[lineLength++] = '\n';
+            handler.frame(line, lineLength);
+        }
+        return position;
+    }
+
+    // A crash can leave half a line at the end; start new records on a fresh line
+    public void prepareForAppend(FileChannel channel, Path path, long validLength) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            in.read(last, size - 1);
+        }
+        if (last.get(0) != '\n') {
+            channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package simpleloginsystem;
+
+// Figures from one journal load: how many records were read and how long it took
+public class LoadStats {
+    private final long storedRecords;
+    private final long tombstones;
+    private final long skippedLines;
+    private final long bytesRead;
+    private final long elapsedNanos;
+
+    public LoadStats(long storedRecords, long tombstones, long skippedLines, long bytesRead, long elapsedNanos) {
+        this.storedRecords = storedRecords;
+        this.tombstones = tombstones;
+        this.skippedLines = skippedLines;
+        this.bytesRead = bytesRead;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public static LoadStats empty() {
+        return new LoadStats(0, 0, 0, 0, 0);
+    }
+
+    // Combine the figures of two loads, e.g. a snapshot and the log replayed after it
+    public LoadStats plus(LoadStats other) {
+        return new LoadStats(storedRecords + other.storedRecords, tombstones + other.tombstones,
+                skippedLines + other.skippedLines, bytesRead + other.bytesRead, elapsedNanos + other.elapsedNanos);
+    }
+
+    // Getters
+    public long getStoredRecords() { return storedRecords; }
+    public long getTombstones() { return tombstones; }
+    public long getSkippedLines() { return skippedLines; }
+    public long getRecordCount() { return storedRecords + tombstones; }
+    public long getBytesRead() { return bytesRead; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+    @Override
+    public String toString() {
+        return "Loaded " + getRecordCount() + " journal records (" + storedRecords + " stored, "
+                + tombstones + " deleted, " + skippedLines + " skipped, " + bytesRead + " bytes) in "
+                + getElapsedMillis() + " ms";
+    }
+}
@@ -1,10 +1,10 @@
 package simpleloginsystem;
 
 import java.util.Scanner;
-import java.util.regex.Pattern;
 
 public class Login {
     private String userName;
+    // Hash of the password (empty until one is set)
     private String password;
     private String cellNumber;
     private String firstName;
@@ -25,27 +25,23 @@ public class Login {
         this.firstName = firstName;
         this.lastName = lastName;
         this.userName = userName;
-        this.password = password;
+        this.password = password == null ? null : PasswordHasher.getDefault().hash(password);
         this.cellNumber = cellNumber;
     }
 
     // Check if username meets requirements
     public boolean checkUsernameFormat(String username) {
-        return username.length() <= 5 && username.contains("_");
+        return ValidationEngine.checkUsername(username).isValid();
     }
 
     // Check if password meets complexity requirements
     public boolean checkPasswordComplexity(String password) {
-        if (password.length() < 8) return false;
-        if (!Pattern.compile("[A-Z]").matcher(password).find()) return false;
-        if (!Pattern.compile("[0-9]").matcher(password).find()) return false;
-        return Pattern.compile("[^A-Za-z0-9]").matcher(password).find();
+        return ValidationEngine.checkPassword(password).isValid();
     }
 
     // Check if cell phone number is correctly formatted
     public boolean checkCellPhoneNumberFormat(String cellNumber) {
-        String pattern = "^\\+\\d{1,3}\\d{7,10}$";
-        return Pattern.matches(pattern, cellNumber);
+        return ValidationEngine.checkCellNumber(cellNumber).isValid();
     }
 
     // Handle user registration process
@@ -69,7 +65,7 @@ public class Login {
         if (!checkPasswordComplexity(password)) {
             return "Password is not correctly formatted, please ensure that the password contains at least eight characters, a capital letter, a number, and a special character.";
         }
-        this.password = password;
+        this.password = PasswordHasher.getDefault().hash(password);
         System.out.println("Password successfully captured.");
 
         System.out.print("Enter cell phone number (with international code, e.g., +27831234567): ");
@@ -85,7 +81,8 @@ public class Login {
 
     // Verify login credentials
     public boolean authenticateUser(String enteredUsername, String enteredPassword) {
-        return enteredUsername.equals(this.userName) && enteredPassword.equals(this.password);
+        // One console user, checked once per run, so the hash is verified inline
+        return enteredUsername.equals(this.userName) && PasswordHasher.getDefault().verify(enteredPassword, this.password);
     }
 
     // Return appropriate login status message
@@ -1,96 +1,225 @@
 package simpleloginsystem;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Random;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Message {
-    private String messageID;
-    private String recipient;
-    private String messageText;
-    private String messageHash;
-    private boolean isSent;
-    private static final String JSON_FILE = "messages.json";
+    // Recipients and senders repeat across many messages, so each is stored once
+    private static final StringDictionary RECIPIENTS = new StringDictionary();
+    private static final StringDictionary SENDERS = new StringDictionary();
+    private static final AtomicReferenceFieldUpdater<Message, Object> TEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Message.class, Object.class, "text");
+
+    private final long messageID;
+    private final int recipientCode;
+    // The text as a String, or a TextArena.Slice once a store has moved it off-heap
+    private volatile Object text;
+    private final int messageNumber;
+    // Only kept when a restored hash differs from the one derived from the other fields
+    private final String storedHash;
+    private final boolean isSent;
+    // Creation time, epoch millis
+    private final long createdAt;
+    private int senderCode = StringDictionary.NONE;
 
     // Constructor with message number parameter
     public Message(String recipient, String messageText, int messageNumber) {
-        this.messageID = generateMessageID();
-        this.recipient = recipient;
-        this.messageText = messageText;
-        this.messageHash = createMessageHash(messageNumber);
-        this.isSent = false;
+        this(recipient, messageText, messageNumber, System.currentTimeMillis());
     }
 
-    // Generate 10-digit random message ID
-    private String generateMessageID() {
-        Random rand = new Random();
-        long id = 1000000000L + (long)(rand.nextDouble() * 9000000000L);
-        return String.valueOf(id);
+    // For messages created earlier, e.g. imported history; createdAt is epoch millis
+    public Message(String recipient, String messageText, int messageNumber, long createdAt) {
+        this.messageID = MessageIds.next();
+        this.recipientCode = RECIPIENTS.encode(recipient);
+        this.text = messageText;
+        this.messageNumber = messageNumber;
+        this.storedHash = null;
+        this.isSent = false;
+        this.createdAt = createdAt;
     }
 
-    // Create message hash in format twoDigits:messageNumber:FIRSTLAST
-    public String createMessageHash(int messageNumber) {
-        String firstTwoID = messageID.substring(0, 2);
+    // Constructor used when restoring a message from the journal
+    private Message(long messageID, String recipient, String messageText, String messageHash, boolean isSent,
+                    long createdAt) {
+        this.messageID = messageID;
+        this.recipientCode = RECIPIENTS.encode(recipient);
+        this.text = messageText;
+        this.messageNumber = parseMessageNumber(messageHash);
+        this.storedHash = MessageHashBuilder.matches(messageID, messageNumber, messageText, messageHash)
+                ? null : messageHash;
+        this.isSent = isSent;
+        this.createdAt = createdAt;
+    }
 
-        // Extract first and last word, remove non-alphanumeric characters, convert to uppercase
-        String[] words = messageText.split("\\s+");
-        String firstWord = words.length > 0 ? words[0] : "";
-        String lastWord = words.length > 1 ? words[words.length - 1] : firstWord;
+    // Rebuild a message from its persisted fields
+    static Message restore(long messageID, String recipient, String messageText, String messageHash, boolean isSent,
+                           long createdAt) {
+        return new Message(messageID, recipient, messageText, messageHash, isSent, createdAt);
+    }
 
-        // Remove non-alphanumeric characters and convert to uppercase
-        firstWord = firstWord.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
-        lastWord = lastWord.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+    // Rebuild a stored message, keeping its original ID and hash
+    public static Message fromJSON(JSONObject messageJson) {
+        String recipient = messageJson.getString("recipient");
+        String messageText = messageJson.getString("messageText");
+        long messageID = parseMessageID(messageJson.optString("messageID", ""));
+        // Records without a usable (numeric) ID get a fresh one, like new messages
+        if (messageID < 0 || !messageJson.has("messageHash")) {
+            return new Message(recipient, messageText, 0);
+        }
+        return new Message(
+                messageID,
+                recipient,
+                messageText,
+                messageJson.getString("messageHash"),
+                messageJson.optBoolean("isSent", false),
+                // Older records only have the local date-time written by storeMessage()
+                messageJson.has("createdAt") ? messageJson.getLong("createdAt")
+                        : JsonLinesCodec.parseTimestamp(messageJson.optString("timestamp", ""))
+        );
+    }
 
-        return firstTwoID + ":" + messageNumber + ":" + firstWord + lastWord;
+    // Numeric message ID, or -1 if the text is not one
+    static long parseMessageID(String messageID) {
+        if (messageID.isEmpty() || messageID.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < messageID.length(); i++) {
+            char c = messageID.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
     }
 
-    // Store message in JSON file
-    public void storeMessage() {
+    // The n in NN:n:FIRSTLAST, or 0 if the hash is not in that form
+    private static int parseMessageNumber(String messageHash) {
+        int first = messageHash.indexOf(':');
+        int second = first < 0 ? -1 : messageHash.indexOf(':', first + 1);
+        if (second < 0) {
+            return 0;
+        }
         try {
-            JSONObject messageJson = new JSONObject();
-            messageJson.put("messageID", this.messageID);
-            messageJson.put("recipient", this.recipient);
-            messageJson.put("messageText", this.messageText);
-            messageJson.put("messageHash", this.messageHash);
-            messageJson.put("isSent", this.isSent);
-            messageJson.put("timestamp", java.time.LocalDateTime.now().toString());
-
-            JSONArray messagesArray;
-            File file = new File(JSON_FILE);
-            if (file.exists()) {
-                String content = new String(Files.readAllBytes(Paths.get(JSON_FILE)));
-                messagesArray = new JSONArray(content);
-            } else {
-                messagesArray = new JSONArray();
-            }
+            return Integer.parseInt(messageHash.substring(first + 1, second));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 
-            messagesArray.put(messageJson);
+    // Create message hash in format twoDigits:messageNumber:FIRSTLAST
+    public String createMessageHash(int messageNumber) {
+        // Single pass over the text; same output as splitting on whitespace and stripping symbols
+        return MessageHashBuilder.hash(messageID, messageNumber, getMessageText());
+    }
 
-            try (FileWriter writer = new FileWriter(JSON_FILE)) {
-                writer.write(messagesArray.toString(4));
-            }
-        } catch (IOException e) {
+    // Store message in the message journal; completes once the record is on disk
+    public CompletableFuture<Void> storeMessage() {
+        CompletableFuture<Void> stored = MessageJournal.getDefault().submit(this);
+        stored.exceptionally(e -> {
             System.err.println("Error storing message: " + e.getMessage());
-        }
+            return null;
+        });
+        return stored;
+    }
+
+    public JSONObject toJSON() {
+        JSONObject messageJson = new JSONObject();
+        messageJson.put("messageID", Long.toString(this.messageID));
+        messageJson.put("recipient", getRecipient());
+        messageJson.put("messageText", getMessageText());
+        messageJson.put("messageHash", getMessageHash());
+        messageJson.put("isSent", this.isSent);
+        messageJson.put("timestamp", JsonLinesCodec.formatTimestamp(this.createdAt));
+        messageJson.put("createdAt", this.createdAt);
+        return messageJson;
     }
 
     // Getters
-    public String getMessageID() { return messageID; }
-    public String getRecipient() { return recipient; }
-    public String getMessageText() { return messageText; }
-    public String getMessageHash() { return messageHash; }
+    public String getMessageID() { return Long.toString(messageID); }
+    public long getId() { return messageID; }
+    public String getRecipient() { return RECIPIENTS.decode(recipientCode); }
+
+    public String getMessageText() {
+        Object current = text;
+        while (current instanceof TextArena.Slice) {
+            TextArena.Slice slice = (TextArena.Slice) current;
+            String decoded = slice.decode();
+            // The text is copied back to the heap before its slot is freed, so if the
+            // field still holds the slice after the read, the slot had not been reused
+            VarHandle.acquireFence();
+            Object now = text;
+            if (now == current) {
+                return decoded;
+            }
+            current = now;
+        }
+        return (String) current;
+    }
+
+    // Length in chars, without decoding off-heap text
+    public int getTextLength() {
+        Object current = text;
+        if (current instanceof TextArena.Slice) {
+            return ((TextArena.Slice) current).getCharLength();
+        }
+        return ((String) current).length();
+    }
     public boolean isSent() { return isSent; }
+    public long getCreatedAt() { return createdAt; }
+
+    // Derived on demand rather than kept as a second string per message
+    public String getMessageHash() {
+        return storedHash != null ? storedHash : createMessageHash(messageNumber);
+    }
+
+    // Compares without building the hash string
+    public boolean hasMessageHash(String messageHash) {
+        if (storedHash != null) {
+            return storedHash.equals(messageHash);
+        }
+        return MessageHashBuilder.matches(messageID, messageNumber, getMessageText(), messageHash);
+    }
+
+    // Move heap text into the arena; texts the arena does not take stay where they are
+    void moveTextTo(TextArena arena) {
+        Object current = text;
+        if (!(current instanceof String)) {
+            return;
+        }
+        TextArena.Slice slice = arena.store((String) current);
+        if (slice != null && !TEXT.compareAndSet(this, current, slice)) {
+            arena.free(slice);
+        }
+    }
+
+    // Copy the text back to the heap and free its slot in the arena
+    void releaseText(TextArena arena) {
+        Object current = text;
+        if (!(current instanceof TextArena.Slice) || ((TextArena.Slice) current).getArena() != arena) {
+            return;
+        }
+        TextArena.Slice slice = (TextArena.Slice) current;
+        if (TEXT.compareAndSet(this, slice, slice.decode())) {
+            arena.free(slice);
+        }
+    }
+
+    // Who sent the message; null until it is added to the sent list
+    public String getSender() { return SENDERS.decode(senderCode); }
+
+    void setSender(String sender) {
+        this.senderCode = SENDERS.encode(sender);
+    }
 
     @Override
     public String toString() {
         return "Message ID: " + messageID + "\n" +
-                "Message Hash: " + messageHash + "\n" +
-                "Recipient: " + recipient + "\n" +
-                "Message: " + messageText;
+                "Message Hash: " + getMessageHash() + "\n" +
+                "Recipient: " + getRecipient() + "\n" +
+                "Message: " + getMessageText();
     }
 }
\ No newline at end of file
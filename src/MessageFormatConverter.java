@@ -0,0 +1,132 @@
+package simpleloginsystem;
+
+import org.json.JSONObject;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Converts stored messages between messages.json (array), .jsonl journals and .qcs binary segments.
+// Usage: java simpleloginsystem.MessageFormatConverter <input> <output>
+public class MessageFormatConverter {
+
+    public interface RecordSink {
+        void accept(JournalRecord record) throws IOException;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: MessageFormatConverter <input .json|.jsonl|.qcs> <output .json|.jsonl|.qcs>");
+            return;
+        }
+        try {
+            Path input = Paths.get(args[0]);
+            Path output = Paths.get(args[1]);
+            long records = convert(input, output);
+            System.out.println("Converted " + records + " records: " + Files.size(input) + " bytes -> "
+                    + Files.size(output) + " bytes");
+        } catch (IOException e) {
+            System.err.println("Error converting messages: " + e.getMessage());
+        }
+    }
+
+    // Returns the number of records written
+    public static long convert(Path input, Path output) throws IOException {
+        Path tempPath = output.resolveSibling(output.getFileName() + ".tmp");
+        long written;
+        if (isLegacyArray(output)) {
+            written = writeLegacyArray(input, tempPath);
+        } else {
+            written = writeJournal(input, tempPath, RecordCodec.forPath(output));
+        }
+        Files.move(tempPath, output, StandardCopyOption.REPLACE_EXISTING);
+        return written;
+    }
+
+    // Stream every record of any supported format, tombstones included
+    public static void read(Path input, RecordSink sink) throws IOException {
+        if (isLegacyArray(input)) {
+            MessageJournal.forEachLegacyMessage(input, json -> sink.accept(JsonLinesCodec.fromJSON(json)));
+            return;
+        }
+
+        RecordCodec codec = RecordCodec.forPath(input);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            codec.forEachFrame(in, Long.MAX_VALUE, (frame, length) -> {
+                JournalRecord record = codec.decode(frame, length);
+                if (record != null) {
+                    sink.accept(record);
+                }
+            });
+        }
+    }
+
+    private static long writeJournal(Path input, Path output, RecordCodec codec) throws IOException {
+        long[] written = {0};
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            out.write(codec.header());
+            read(input, record -> {
+                out.write(codec.encode(record));
+                written[0]++;
+            });
+        }
+        return written[0];
+    }
+
+    // The array layout has no tombstones, so only live messages are written. A first pass
+    // finds, per list and message ID, the position of the record that is still live; the
+    // second streams those records out, so no message is held in memory.
+    private static long writeLegacyArray(Path input, Path output) throws IOException {
+        Map<String, Long> live = new HashMap<>();
+        long[] position = {0};
+        read(input, record -> {
+            String key = record.getList() + ":" + record.getMessageID();
+            if (record.isDelete()) {
+                live.remove(key);
+            } else {
+                live.put(key, position[0]);
+            }
+            position[0]++;
+        });
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("[");
+            long[] written = {0};
+            position[0] = 0;
+            read(input, record -> {
+                long at = position[0]++;
+                Long latest = live.get(record.getList() + ":" + record.getMessageID());
+                if (record.isDelete() || latest == null || latest != at) {
+                    return;
+                }
+                // "timestamp" stays the creation time, as in the JSON Lines journal
+                JSONObject json = record.getMessage().toJSON();
+                // Stored copies keep the original layout; the others say which list they are in
+                if (record.getOp() == JournalRecord.Op.SEND) {
+                    json.put("op", "send");
+                    json.put("sender", record.getSender());
+                } else if (record.getOp() == JournalRecord.Op.DISREGARD) {
+                    json.put("op", "disregard");
+                }
+                writer.write(written[0] == 0 ? "\n" : ",\n");
+                writer.write(json.toString(4));
+                written[0]++;
+            });
+            writer.write("\n]");
+            return written[0];
+        }
+    }
+
+    private static boolean isLegacyArray(Path path) {
+        return path.getFileName().toString().endsWith(".json");
+    }
+}
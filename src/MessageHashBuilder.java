@@ -0,0 +1,178 @@
+package simpleloginsystem;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Builds the twoDigits:messageNumber:FIRSTLAST message hash in one pass over the text,
+// into a reusable char buffer. The output matches the original split("\\s+") /
+// replaceAll("[^a-zA-Z0-9]", "") / toUpperCase() version character for character:
+// - words are separated by runs of [ \t\n\x0B\f\r] (regex \s)
+// - leading whitespace makes the first word empty; all-whitespace text has no words at all
+// - with a single word, the last word is the first word again
+// - only ASCII letters and digits are kept, letters upper-cased in the default locale
+public class MessageHashBuilder {
+    private static final ThreadLocal<MessageHashBuilder> BUILDERS = ThreadLocal.withInitial(MessageHashBuilder::new);
+
+    private char[] buffer = new char[64];
+    private int length;
+
+    // Shared per-thread builder for one-off hashes
+    public static String hash(long messageID, int messageNumber, CharSequence messageText) {
+        return BUILDERS.get().build(messageID, messageNumber, messageText).toString();
+    }
+
+    // Whether hash is exactly what build() would produce, without creating a String
+    public static boolean matches(long messageID, int messageNumber, CharSequence messageText, CharSequence hash) {
+        return BUILDERS.get().build(messageID, messageNumber, messageText).contentEquals(hash);
+    }
+
+    public MessageHashBuilder build(long messageID, int messageNumber, CharSequence messageText) {
+        length = 0;
+        appendFirstTwoDigits(messageID);
+        append(':');
+        appendInt(messageNumber);
+        append(':');
+
+        int textLength = messageText.length();
+        int firstStart = 0;
+        int firstEnd = 0;
+        int lastStart = 0;
+        int lastEnd = 0;
+        int runs = 0;
+        int i = 0;
+        while (i < textLength) {
+            if (isWhitespace(messageText.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < textLength && !isWhitespace(messageText.charAt(i))) {
+                i++;
+            }
+            if (runs == 0) {
+                firstStart = start;
+                firstEnd = i;
+            }
+            lastStart = start;
+            lastEnd = i;
+            runs++;
+        }
+
+        boolean leadingWhitespace = textLength > 0 && isWhitespace(messageText.charAt(0));
+        if (leadingWhitespace) {
+            // split() yields an empty first word, so the last word is the final run (if any)
+            if (runs > 0) {
+                appendWord(messageText, lastStart, lastEnd);
+            }
+        } else if (runs > 0) {
+            appendWord(messageText, firstStart, firstEnd);
+            appendWord(messageText, lastStart, lastEnd);
+        }
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char[] buffer() {
+        return buffer;
+    }
+
+    public boolean contentEquals(CharSequence other) {
+        if (other == null || other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    // The first two characters of Long.toString(messageID)
+    private void appendFirstTwoDigits(long messageID) {
+        if (messageID < 0) {
+            append('-');
+            appendLeadingDigits(messageID, 1);
+        } else {
+            appendLeadingDigits(messageID, 2);
+        }
+    }
+
+    // The first count digits of the decimal form of |value|
+    private void appendLeadingDigits(long value, int count) {
+        if (value == Long.MIN_VALUE) {
+            // |MIN_VALUE| does not fit in a long; its digits start 92...
+            append('9');
+            if (count > 1) {
+                append('2');
+            }
+            return;
+        }
+        long magnitude = Math.abs(value);
+        long divisor = 1;
+        while (magnitude / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (int written = 0; written < count && divisor > 0; written++) {
+            append((char) ('0' + (magnitude / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    private void appendInt(int value) {
+        if (value < 0) {
+            append('-');
+            if (value == Integer.MIN_VALUE) {
+                appendDigits(2147483648L);
+                return;
+            }
+            value = -value;
+        }
+        appendDigits(value);
+    }
+
+    private void appendDigits(long value) {
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            append((char) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    private void appendWord(CharSequence text, int start, int end) {
+        String language = Locale.getDefault().getLanguage();
+        // toUpperCase() in Turkish and Azerbaijani locales maps 'i' to a dotted capital I
+        boolean dottedCapitalI = "tr".equals(language) || "az".equals(language);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                append(c == 'i' && dottedCapitalI ? '\u0130' : (char) (c - 32));
+            } else if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                append(c);
+            }
+        }
+    }
+
+    private void append(char c) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, length * 2);
+        }
+        buffer[length++] = c;
+    }
+
+    // The same characters as \s in a Java regex without UNICODE_CHARACTER_CLASS
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
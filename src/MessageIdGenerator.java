@@ -0,0 +1,43 @@
+package simpleloginsystem;
+
+import java.nio.file.Path;
+
+// Source of 10-digit message IDs (1000000000..9999999999), kept as primitive longs.
+// Implementations never hand out the same ID twice, nor any ID passed to reserve().
+public interface MessageIdGenerator {
+    long MIN_ID = 1_000_000_000L;
+    long MAX_ID = 9_999_999_999L;
+    // High-water mark of the IDs issued, kept with the messages: in a store's state directory,
+    // or next to a journal with MARK_EXTENSION appended
+    String MARK_EXTENSION = ".mark";
+    String MARK_FILE = "message-ids" + MARK_EXTENSION;
+
+    long nextId();
+
+    // IDs already in use (e.g. loaded from disk) that must never be issued
+    void reserve(long[] ids, int count);
+
+    // Also keeps the high-water mark in markFile, first continuing past any mark already there,
+    // so IDs saved alongside it are not issued again after a restart
+    void addMarkFile(Path markFile);
+
+    void removeMarkFile(Path markFile);
+
+    static MessageIdGenerator sequence() {
+        return new SequenceIdGenerator();
+    }
+
+    // Continues after the IDs issued by earlier runs, as recorded in markFile
+    static MessageIdGenerator sequence(Path markFile) {
+        return new SequenceIdGenerator(markFile);
+    }
+
+    static MessageIdGenerator snowflake(int workerId, int workerBits) {
+        return new SnowflakeIdGenerator(workerId, workerBits);
+    }
+
+    // As above, never going back to the ticks used by earlier runs, as recorded in markFile
+    static MessageIdGenerator snowflake(int workerId, int workerBits, Path markFile) {
+        return new SnowflakeIdGenerator(workerId, workerBits, markFile);
+    }
+}
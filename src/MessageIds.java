@@ -0,0 +1,23 @@
+package simpleloginsystem;
+
+// The generator used for new messages; sequence-based unless configured otherwise. Each
+// open MessageStore keeps the generator's high-water mark in its own directory.
+public final class MessageIds {
+    private static volatile MessageIdGenerator generator = MessageIdGenerator.sequence();
+
+    private MessageIds() {
+    }
+
+    public static MessageIdGenerator getGenerator() {
+        return generator;
+    }
+
+    // Swap the generator before messages are created, e.g. Snowflake mode on a multi-node setup
+    public static void setGenerator(MessageIdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+
+    public static long next() {
+        return generator.nextId();
+    }
+}
@@ -0,0 +1,361 @@
+package simpleloginsystem;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Bulk import of historical messages from JSON Lines or CSV files.
+// The file is mapped a wave (up to 64 MB) at a time and cut into ~1 MB chunks at line breaks.
+// Chunks are parsed and validated in parallel on a fork/join pool; their messages then go
+// into the store one batch per chunk, in file order. Each line is one message:
+//   JSONL: {"recipient": "+2783123456", "messageText": "...", "sender": "...", "createdAt": 1700000000000}
+//   CSV:   a header naming the columns (recipient, messageText, sender, createdAt), then one row per line
+// sender and createdAt are optional: messages with a sender go to the sent list, others to stored;
+// createdAt is epoch millis or a local date-time (a "timestamp" field is read the same way).
+// Quoted CSV fields may contain commas and quotes but not line breaks.
+// Usage: java simpleloginsystem.MessageImporter <input .jsonl|.csv> [state directory]
+public class MessageImporter {
+    public static final int CHUNK_BYTES = 1 << 20;
+    public static final int WAVE_BYTES = 64 << 20;
+    public static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final MessageStore store;
+    private final ForkJoinPool pool;
+
+    public MessageImporter(MessageStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    public MessageImporter(MessageStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: MessageImporter <input .jsonl|.csv> [state directory]");
+            return;
+        }
+        MessageStore store = args.length == 2 ? new MessageStore(Paths.get(args[1])) : new MessageStore();
+        try {
+            ImportReport report = new MessageImporter(store).importFile(Paths.get(args[0]));
+            System.out.println(report);
+            for (String rejection : report.getRejections()) {
+                System.out.println("  rejected " + rejection);
+            }
+        } catch (IOException e) {
+            System.err.println("Error importing messages: " + e.getMessage());
+        } finally {
+            store.close();
+        }
+    }
+
+    // Returns once every imported message is in the store and written to its log
+    public ImportReport importFile(Path file) throws IOException {
+        boolean csv = file.getFileName().toString().toLowerCase().endsWith(".csv");
+        long started = System.nanoTime();
+        long imported = 0;
+        long rejected = 0;
+        List<String> rejections = new ArrayList<>();
+        long size;
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = in.size();
+            long position = 0;
+            long nextLine = 1;
+            Columns columns = null;
+            while (position < size) {
+                int length = (int) Math.min(WAVE_BYTES, size - position);
+                MappedByteBuffer wave = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // The wave ends after its last complete line, unless it reaches the end of the file
+                int end = position + length == size ? length : lastLineBreak(wave, length) + 1;
+                if (end == 0) {
+                    throw new IOException("Line " + nextLine + " is longer than " + WAVE_BYTES + " bytes");
+                }
+                int start = 0;
+                if (csv && columns == null) {
+                    int headerEnd = indexOf(wave, (byte) '\n', 0, end);
+                    columns = Columns.parse(line(wave, 0, headerEnd < 0 ? end : headerEnd));
+                    start = headerEnd < 0 ? end : headerEnd + 1;
+                    nextLine++;
+                }
+
+                Chunk[] chunks = split(wave, start, end, nextLine);
+                Columns csvColumns = columns;
+                pool.invoke(new ChunkTask(chunks, 0, chunks.length, chunk -> parse(wave, chunk, csvColumns)));
+
+                List<CompletableFuture<Void>> written = new ArrayList<>();
+                for (Chunk chunk : chunks) {
+                    written.add(store.addBatch(chunk.messages));
+                    imported += chunk.messages.size();
+                    rejected += chunk.rejected;
+                    for (String rejection : chunk.rejections) {
+                        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                            rejections.add(rejection);
+                        }
+                    }
+                    nextLine += chunk.lines;
+                }
+                CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0])).join();
+                position += end;
+            }
+        }
+        return new ImportReport(imported, rejected, size, System.nanoTime() - started, rejections);
+    }
+
+    // A run of whole lines within a wave, and what parsing it produced
+    private static final class Chunk {
+        final int start;
+        final int end;
+        long firstLine;
+        int lines;
+        List<Message> messages = new ArrayList<>();
+        int rejected;
+        List<String> rejections = new ArrayList<>();
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private interface ChunkAction {
+        void run(Chunk chunk);
+    }
+
+    // Runs the action on every chunk, splitting the range in half until one chunk is left
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk[] chunks;
+        private final int from;
+        private final int to;
+        private final ChunkAction action;
+
+        ChunkTask(Chunk[] chunks, int from, int to, ChunkAction action) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    action.run(chunks[from]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(chunks, from, middle, action), new ChunkTask(chunks, middle, to, action));
+        }
+    }
+
+    // ~CHUNK_BYTES pieces ending at line breaks, each told its first line number
+    private Chunk[] split(MappedByteBuffer wave, int start, int end, long firstLine) {
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkStart = start;
+        while (chunkStart < end) {
+            int chunkEnd = end;
+            if (end - chunkStart > CHUNK_BYTES) {
+                int lineBreak = indexOf(wave, (byte) '\n', chunkStart + CHUNK_BYTES, end);
+                chunkEnd = lineBreak < 0 ? end : lineBreak + 1;
+            }
+            chunks.add(new Chunk(chunkStart, chunkEnd));
+            chunkStart = chunkEnd;
+        }
+        Chunk[] result = chunks.toArray(new Chunk[0]);
+
+        // Line numbers need the line count of every earlier chunk, so count first (in parallel)
+        pool.invoke(new ChunkTask(result, 0, result.length, chunk -> {
+            int lines = 0;
+            for (int i = chunk.start; i < chunk.end; i++) {
+                if (wave.get(i) == '\n') {
+                    lines++;
+                }
+            }
+            // A last line without a trailing line break still counts
+            chunk.lines = wave.get(chunk.end - 1) == '\n' ? lines : lines + 1;
+        }));
+        long line = firstLine;
+        for (Chunk chunk : result) {
+            chunk.firstLine = line;
+            line += chunk.lines;
+        }
+        return result;
+    }
+
+    private void parse(MappedByteBuffer wave, Chunk chunk, Columns columns) {
+        long lineNumber = chunk.firstLine;
+        int lineStart = chunk.start;
+        while (lineStart < chunk.end) {
+            int lineBreak = indexOf(wave, (byte) '\n', lineStart, chunk.end);
+            int lineEnd = lineBreak < 0 ? chunk.end : lineBreak;
+            String line = line(wave, lineStart, lineEnd);
+            if (!line.isBlank()) {
+                try {
+                    chunk.messages.add(columns == null ? fromJsonLine(line, lineNumber) : fromCsvLine(columns, line, lineNumber));
+                } catch (IllegalArgumentException | JSONException e) {
+                    chunk.rejected++;
+                    if (chunk.rejections.size() < MAX_REPORTED_REJECTIONS) {
+                        chunk.rejections.add("line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+            }
+            lineNumber++;
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private Message fromJsonLine(String line, long lineNumber) {
+        JSONObject json = new JSONObject(line);
+        String createdAt = json.has("createdAt") ? json.get("createdAt").toString() : json.optString("timestamp", null);
+        return toMessage(json.optString("recipient", null), json.optString("messageText", null),
+                json.optString("sender", null), createdAt, lineNumber);
+    }
+
+    private Message fromCsvLine(Columns columns, String line, long lineNumber) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != columns.count) {
+            throw new IllegalArgumentException("expected " + columns.count + " fields but found " + fields.size());
+        }
+        return toMessage(fields.get(columns.recipient), fields.get(columns.messageText),
+                columns.sender < 0 ? null : fields.get(columns.sender),
+                columns.createdAt < 0 ? null : fields.get(columns.createdAt), lineNumber);
+    }
+
+    // Same rules as interactive entry: '+' and exactly 10 digits, and at most 250 characters
+    private Message toMessage(String recipient, String messageText, String sender, String createdAt, long lineNumber) {
+        if (!ValidationEngine.checkRecipient(recipient).isValid()) {
+            throw new IllegalArgumentException("invalid recipient " + recipient);
+        }
+        if (messageText == null || messageText.isEmpty()) {
+            throw new IllegalArgumentException("missing message text");
+        }
+        if (!ValidationEngine.checkMessage(messageText).isValid()) {
+            throw new IllegalArgumentException("message exceeds " + ValidationEngine.MAX_MESSAGE_LENGTH + " characters");
+        }
+        long created = parseCreatedAt(createdAt);
+        // The line number plays the part of the message counter in the hash
+        Message message = new Message(recipient, messageText, (int) Math.min(lineNumber, Integer.MAX_VALUE), created);
+        if (sender != null && !sender.isEmpty()) {
+            message.setSender(sender);
+        }
+        return message;
+    }
+
+    private static long parseCreatedAt(String value) {
+        if (value == null || value.isEmpty()) {
+            return System.currentTimeMillis();
+        }
+        boolean digits = true;
+        for (int i = 0; i < value.length() && digits; i++) {
+            digits = Character.isDigit(value.charAt(i));
+        }
+        long millis = digits && value.length() <= 18 ? Long.parseLong(value) : JsonLinesCodec.parseTimestamp(value);
+        if (millis <= 0) {
+            throw new IllegalArgumentException("invalid createdAt " + value);
+        }
+        return millis;
+    }
+
+    // Column positions from a CSV header
+    private static final class Columns {
+        final int recipient;
+        final int messageText;
+        final int sender;
+        final int createdAt;
+        final int count;
+
+        private Columns(int recipient, int messageText, int sender, int createdAt, int count) {
+            this.recipient = recipient;
+            this.messageText = messageText;
+            this.sender = sender;
+            this.createdAt = createdAt;
+            this.count = count;
+        }
+
+        static Columns parse(String header) throws IOException {
+            List<String> names = splitCsv(header);
+            int createdAt = names.indexOf("createdAt");
+            Columns columns = new Columns(names.indexOf("recipient"), names.indexOf("messageText"),
+                    names.indexOf("sender"), createdAt >= 0 ? createdAt : names.indexOf("timestamp"), names.size());
+            if (columns.recipient < 0 || columns.messageText < 0) {
+                throw new IOException("CSV header must name recipient and messageText columns: " + header);
+            }
+            return columns;
+        }
+    }
+
+    // One CSV line; quoted fields may hold commas and doubled quotes
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Text of [start, end), without a trailing carriage return
+    private static String line(MappedByteBuffer wave, int start, int end) {
+        if (end > start && wave.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        wave.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(MappedByteBuffer wave, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (wave.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastLineBreak(MappedByteBuffer wave, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (wave.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,448 @@
+package simpleloginsystem;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Append-only journal of stored messages. Records are JSON Lines by default, or binary
+// segments for .qcs files. Deletes are tombstone records; a background compactor drops dead records.
+public class MessageJournal {
+    public static final String JOURNAL_FILE = "messages.jsonl";
+    public static final String SEGMENT_FILE = "messages" + BinarySegmentCodec.EXTENSION;
+    public static final String LEGACY_FILE = "messages.json";
+
+    private static MessageJournal defaultJournal;
+
+    private final Path journalPath;
+    private final Path legacyPath;
+    private final RecordCodec codec;
+
+    private FileChannel channel;
+    private JournalWriter writer;
+    private ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private long totalRecords;
+    private long deadRecords;
+    private long validLength = -1;
+    private double compactionRatio = 0.5;
+    private long minCompactionRecords = 1000;
+
+    public MessageJournal(Path journalPath, Path legacyPath) {
+        this(journalPath, legacyPath, RecordCodec.forPath(journalPath));
+    }
+
+    public MessageJournal(Path journalPath, Path legacyPath, RecordCodec codec) {
+        this.journalPath = journalPath;
+        this.legacyPath = legacyPath;
+        this.codec = codec;
+        migrateLegacyFile();
+    }
+
+    // Shared journal in the working directory, used by Message.storeMessage().
+    // A converted binary segment takes precedence over the JSON Lines journal.
+    public static synchronized MessageJournal getDefault() {
+        if (defaultJournal == null) {
+            Path segmentPath = Paths.get(SEGMENT_FILE);
+            Path journalPath = Files.exists(segmentPath) ? segmentPath : Paths.get(JOURNAL_FILE);
+            defaultJournal = new MessageJournal(journalPath, Paths.get(LEGACY_FILE));
+        }
+        return defaultJournal;
+    }
+
+    // Append one stored message to the end of the journal through the reused channel
+    public synchronized void append(Message message) throws IOException {
+        write(ByteBuffer.wrap(codec.encode(JournalRecord.store(message, System.currentTimeMillis()))));
+        totalRecords++;
+    }
+
+    // Append already encoded records, used by the background writer
+    public synchronized void write(ByteBuffer buffer) throws IOException {
+        FileChannel ch = openChannel();
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+    }
+
+    public synchronized void force() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(false);
+        }
+    }
+
+    // Start (or replace) the background writer for this journal
+    public JournalWriter openWriter(FlushPolicy policy) {
+        JournalWriter previous;
+        JournalWriter opened;
+        synchronized (this) {
+            previous = writer;
+            if (previous != null
+                    && previous.getPolicy().getMode() == policy.getMode()
+                    && previous.getPolicy().getMaxBatchSize() == policy.getMaxBatchSize()
+                    && previous.getPolicy().getWindowMillis() == policy.getWindowMillis()) {
+                return previous;
+            }
+            writer = new JournalWriter(this, policy);
+            opened = writer;
+        }
+
+        // Closing flushes through this journal, so it must happen outside the lock
+        if (previous != null) {
+            previous.close();
+        }
+        return opened;
+    }
+
+    // Store a message through the background writer; completes once it is durable
+    public CompletableFuture<Void> submit(Message message) {
+        return submit(JournalRecord.store(message, System.currentTimeMillis()));
+    }
+
+    // Append any journal record through the background writer
+    public CompletableFuture<Void> submit(JournalRecord record) {
+        byte[] frame;
+        try {
+            frame = codec.encode(record);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        JournalWriter current;
+        synchronized (this) {
+            current = writer;
+            totalRecords++;
+        }
+        if (current != null) {
+            return current.submit(frame);
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            synchronized (this) {
+                write(ByteBuffer.wrap(frame));
+                force();
+            }
+            result.complete(null);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // Stream the journal record by record with a fixed read buffer
+    public synchronized LoadStats replay(Consumer<JournalRecord> handler) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[3]; // stored, tombstones, skipped
+        long bytes = 0;
+
+        if (Files.exists(journalPath)) {
+            bytes = Files.size(journalPath);
+            long[] frameNumber = {0};
+            try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+                validLength = codec.forEachFrame(in, Long.MAX_VALUE, (frame, length) -> {
+                    frameNumber[0]++;
+                    JournalRecord record = decode(frame, length, frameNumber[0]);
+                    if (record == null) {
+                        return;
+                    }
+                    if (record == SKIPPED) {
+                        counts[2]++;
+                    } else if (record.isDelete()) {
+                        counts[1]++;
+                        handler.accept(record);
+                    } else {
+                        counts[0]++;
+                        handler.accept(record);
+                    }
+                });
+            }
+        }
+
+        totalRecords = counts[0] + counts[1];
+        deadRecords = Math.min(totalRecords, counts[1] * 2);
+        return new LoadStats(counts[0], counts[1], counts[2], bytes, System.nanoTime() - start);
+    }
+
+    // Read every record in the journal, skipping records that cannot be decoded
+    public synchronized List<JournalRecord> readAll() throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        replay(records::add);
+        return records;
+    }
+
+    // Replay the journal: stored messages minus those removed by a later tombstone
+    public synchronized List<Message> readLive() throws IOException {
+        Map<String, Message> live = new LinkedHashMap<>();
+        replay(record -> {
+            if (record.isDelete()) {
+                live.remove(record.getMessageID());
+            } else {
+                live.put(record.getMessageID(), record.getMessage());
+            }
+        });
+        return new ArrayList<>(live.values());
+    }
+
+    // Record a delete as a small tombstone instead of rewriting the file
+    public CompletableFuture<Void> delete(String messageID) {
+        CompletableFuture<Void> written = submit(JournalRecord.delete(messageID, System.currentTimeMillis()));
+        synchronized (this) {
+            // The tombstone and the record it removes are both dead weight now
+            deadRecords += 2;
+        }
+        maybeCompact();
+        return written;
+    }
+
+    // Only compact once enough of the file is dead records
+    public synchronized void setCompactionThreshold(double deadRatio, long minRecords) {
+        if (deadRatio <= 0 || deadRatio > 1) {
+            throw new IllegalArgumentException("Dead record ratio must be in (0, 1]");
+        }
+        this.compactionRatio = deadRatio;
+        this.minCompactionRecords = minRecords;
+    }
+
+    public synchronized double getDeadRatio() {
+        return totalRecords == 0 ? 0 : (double) deadRecords / totalRecords;
+    }
+
+    private void maybeCompact() {
+        boolean due;
+        synchronized (this) {
+            due = totalRecords >= minCompactionRecords && getDeadRatio() >= compactionRatio;
+        }
+        if (due) {
+            compact();
+        }
+    }
+
+    // Rewrite the journal without dead records on the background compactor thread
+    public CompletableFuture<Boolean> compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                runCompaction();
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error compacting message journal: " + e.getMessage());
+                throw new CompletionException(e);
+            } finally {
+                compacting.set(false);
+            }
+        }, compactor());
+    }
+
+    private void runCompaction() throws IOException {
+        JournalWriter current;
+        synchronized (this) {
+            current = writer;
+        }
+        if (current != null) {
+            current.barrier().join();
+        }
+
+        // Everything before the cut is compacted without holding the lock, so stores keep flowing
+        long cut;
+        synchronized (this) {
+            if (!Files.exists(journalPath)) {
+                return;
+            }
+            cut = Files.size(journalPath);
+        }
+
+        // Pass 1: last tombstone position per message ID
+        Map<String, Long> lastTombstone = new HashMap<>();
+        long[] frameNumber = {0};
+        try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            codec.forEachFrame(in, cut, (frame, length) -> {
+                frameNumber[0]++;
+                JournalRecord record = decode(frame, length, frameNumber[0]);
+                if (record != null && record != SKIPPED && record.isDelete()) {
+                    lastTombstone.put(record.getMessageID(), frameNumber[0]);
+                }
+            });
+        }
+
+        // Pass 2: copy the frames of records that are still live, byte for byte
+        Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".compact");
+        long[] removed = {0};
+        long compactedEnd;
+        frameNumber[0] = 0;
+        try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+            out.write(codec.header());
+            compactedEnd = codec.forEachFrame(in, cut, (frame, length) -> {
+                frameNumber[0]++;
+                JournalRecord record = decode(frame, length, frameNumber[0]);
+                boolean keep = record != null && record != SKIPPED && !record.isDelete();
+                if (keep) {
+                    Long deletedAt = lastTombstone.get(record.getMessageID());
+                    keep = deletedAt == null || deletedAt < frameNumber[0];
+                }
+                if (keep) {
+                    out.write(frame, 0, length);
+                } else if (record != null) {
+                    removed[0]++;
+                }
+            });
+        }
+
+        // Swap in the compacted file, carrying over whatever was appended after the cut
+        synchronized (this) {
+            closeChannel();
+            try (FileChannel source = FileChannel.open(journalPath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(tempPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long position = Math.min(cut, compactedEnd);
+                long end = source.size();
+                while (position < end) {
+                    position += source.transferTo(position, end - position, target);
+                }
+                target.force(true);
+            }
+            Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            totalRecords = Math.max(0, totalRecords - removed[0]);
+            deadRecords = Math.max(0, deadRecords - removed[0]);
+            validLength = -1;
+        }
+    }
+
+    private synchronized ExecutorService compactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+
+    // Marker for frames that could not be decoded
+    private static final JournalRecord SKIPPED = JournalRecord.delete("", 0);
+
+    private JournalRecord decode(byte[] frame, int length, long frameNumber) {
+        try {
+            return codec.decode(frame, length);
+        } catch (IOException e) {
+            // A torn last record after a crash is expected, anything else is reported
+            System.err.println("Skipping unreadable journal record " + frameNumber + ": " + e.getMessage());
+            return SKIPPED;
+        }
+    }
+
+    // Flush the background writer and release the file
+    public void close() {
+        JournalWriter current;
+        synchronized (this) {
+            current = writer;
+            writer = null;
+        }
+        if (current != null) {
+            current.close();
+        }
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdown();
+                compactor = null;
+            }
+            closeChannel();
+        }
+    }
+
+    public Path getJournalPath() { return journalPath; }
+    public RecordCodec getCodec() { return codec; }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            codec.prepareForAppend(channel, journalPath, validLength);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing message journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    // Convert an existing pretty-printed messages.json array into the journal on first start
+    private void migrateLegacyFile() {
+        if (legacyPath == null || !Files.exists(legacyPath) || Files.exists(journalPath)) {
+            return;
+        }
+
+        try {
+            // Write to a temp file first so a failed migration is retried on the next start
+            Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                out.write(codec.header());
+                forEachLegacyMessage(legacyPath, json -> out.write(codec.encode(JsonLinesCodec.fromJSON(json))));
+            }
+            Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING);
+
+            // Keep the old file around under a new name so it is not migrated twice
+            Path migratedPath = legacyPath.resolveSibling(legacyPath.getFileName() + ".migrated");
+            Files.move(legacyPath, migratedPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | JSONException e) {
+            System.err.println("Error migrating " + legacyPath + ": " + e.getMessage());
+        }
+    }
+
+    public interface LegacyHandler {
+        void accept(JSONObject message) throws IOException;
+    }
+
+    // Walk a messages.json array one object at a time instead of building the whole JSONArray
+    public static void forEachLegacyMessage(Path legacyPath, LegacyHandler handler) throws IOException {
+        try (Reader reader = Files.newBufferedReader(legacyPath, StandardCharsets.UTF_8)) {
+            JSONTokener tokener = new JSONTokener(reader);
+            if (tokener.nextClean() != '[') {
+                throw tokener.syntaxError("A JSON array of messages was expected");
+            }
+            char next = tokener.nextClean();
+            while (next != ']') {
+                tokener.back();
+                handler.accept(new JSONObject(tokener));
+
+                next = tokener.nextClean();
+                if (next == ',') {
+                    next = tokener.nextClean();
+                } else if (next != ']') {
+                    throw tokener.syntaxError("Expected ',' or ']'");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package simpleloginsystem;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Open-addressing hash index from a 64-bit key to messages, with no boxing.
+// Keys may repeat (message hashes are not unique, and distinct strings can share a key), so
+// lookups walk the probe run and let the caller confirm the real string. Linear probing with
+// backward-shift deletes keeps entries of one key in insertion order and runs short.
+public class MessageKeyIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Message[] values;
+    private int mask;
+    private int size;
+
+    public MessageKeyIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    public MessageKeyIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    // Numeric message IDs are their own key; anything else falls back to a string fingerprint
+    public static long idKey(String messageID) {
+        int length = messageID.length();
+        if (length > 0 && length <= 18) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                char c = messageID.charAt(i);
+                if (c < '0' || c > '9') {
+                    return fingerprint(messageID);
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+        return fingerprint(messageID);
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars
+    public static long fingerprint(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public void add(long key, Message message) {
+        if ((size + 1) * 4L > values.length * 3L) {
+            resize(values.length * 2);
+        }
+        int slot = slot(key);
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = message;
+        size++;
+    }
+
+    // First message stored under key that passes match, in insertion order
+    public Message find(long key, Predicate<Message> match) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key && match.test(values[slot])) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Every message stored under key that passes match, in insertion order
+    public void findAll(long key, Predicate<Message> match, List<Message> out) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key && match.test(values[slot])) {
+                out.add(values[slot]);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Remove this exact message instance from under key
+    public boolean remove(long key, Message message) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key && values[slot] == message) {
+                deleteSlot(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() { return size; }
+
+    // Shift later entries of the run back so no lookup stops early at the hole
+    private void deleteSlot(int hole) {
+        int current = (hole + 1) & mask;
+        while (values[current] != null) {
+            int home = slot(keys[current]);
+            // Move the entry unless its home lies cyclically in (hole, current]
+            boolean movable = hole <= current
+                    ? (home <= hole || home > current)
+                    : (home <= hole && home > current);
+            if (movable) {
+                keys[hole] = keys[current];
+                values[hole] = values[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Message[] oldValues = values;
+        allocate(capacity);
+        // Re-adding in old slot order from each run's start keeps duplicates in insertion order
+        int start = 0;
+        while (start < oldValues.length && oldValues[start] != null) {
+            start++;
+        }
+        for (int i = 0; i < oldValues.length; i++) {
+            int index = (start + i) % oldValues.length;
+            if (oldValues[index] != null) {
+                int slot = slot(oldKeys[index]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Message[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long key) {
+        // Murmur3 finalizer spreads sequential IDs across the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+}
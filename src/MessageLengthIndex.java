@@ -0,0 +1,152 @@
+package simpleloginsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Messages bucketed by text length, kept up to date on add and remove.
+// Buckets keep insertion order, so ties go to the earliest message like the old linear scan.
+// A Fenwick tree over short lengths answers rank (percentile) queries in O(log n);
+// the rare messages longer than that are counted by walking their buckets.
+public class MessageLengthIndex {
+    private static final int FENWICK_LENGTHS = 4096;
+
+    private final TreeMap<Integer, LinkedHashSet<Message>> buckets = new TreeMap<>();
+    private final long[] tree = new long[FENWICK_LENGTHS + 1];
+    private int size;
+
+    public void add(Message message) {
+        int length = message.getTextLength();
+        buckets.computeIfAbsent(length, l -> new LinkedHashSet<>()).add(message);
+        if (length < FENWICK_LENGTHS) {
+            update(length, 1);
+        }
+        size++;
+    }
+
+    public boolean remove(Message message) {
+        int length = message.getTextLength();
+        LinkedHashSet<Message> bucket = buckets.get(length);
+        if (bucket == null || !bucket.remove(message)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(length);
+        }
+        if (length < FENWICK_LENGTHS) {
+            update(length, -1);
+        }
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        buckets.clear();
+        Arrays.fill(tree, 0);
+        size = 0;
+    }
+
+    public int size() { return size; }
+
+    // Earliest of the longest messages, or null when empty
+    public Message longest() {
+        Map.Entry<Integer, LinkedHashSet<Message>> last = buckets.lastEntry();
+        return last == null ? null : last.getValue().iterator().next();
+    }
+
+    // Up to k messages, longest first
+    public List<Message> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        List<Message> result = new ArrayList<>(Math.min(k, size));
+        for (LinkedHashSet<Message> bucket : buckets.descendingMap().values()) {
+            Iterator<Message> it = bucket.iterator();
+            while (it.hasNext() && result.size() < k) {
+                result.add(it.next());
+            }
+            if (result.size() == k) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Nearest-rank percentile of message length; percentile in (0, 100]. -1 when empty.
+    public int percentile(double percentile) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100]");
+        }
+        if (size == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * size);
+        long shortCount = prefix(FENWICK_LENGTHS - 1);
+        if (rank <= shortCount) {
+            return search(rank);
+        }
+
+        long seen = shortCount;
+        NavigableMap<Integer, LinkedHashSet<Message>> longer = buckets.tailMap(FENWICK_LENGTHS, true);
+        for (Map.Entry<Integer, LinkedHashSet<Message>> entry : longer.entrySet()) {
+            seen += entry.getValue().size();
+            if (seen >= rank) {
+                return entry.getKey();
+            }
+        }
+        return buckets.lastKey();
+    }
+
+    // How many messages are at most length characters long
+    public long countAtMost(int length) {
+        if (length < 0) {
+            return 0;
+        }
+        long count = prefix(Math.min(length, FENWICK_LENGTHS - 1));
+        if (length >= FENWICK_LENGTHS) {
+            for (LinkedHashSet<Message> bucket : buckets.subMap(FENWICK_LENGTHS, true, length, true).values()) {
+                count += bucket.size();
+            }
+        }
+        return count;
+    }
+
+    // Length of the longest message, or -1 when empty
+    public int maxLength() {
+        return buckets.isEmpty() ? -1 : buckets.lastKey();
+    }
+
+    // Fenwick tree over lengths 0..FENWICK_LENGTHS-1, stored one-based
+    private void update(int length, long delta) {
+        for (int i = length + 1; i <= FENWICK_LENGTHS; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private long prefix(int length) {
+        long sum = 0;
+        for (int i = length + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Smallest length whose running count reaches rank
+    private int search(long rank) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(FENWICK_LENGTHS); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= FENWICK_LENGTHS && tree[next] < rank) {
+                position = next;
+                rank -= tree[next];
+            }
+        }
+        // position is the count of lengths below the answer, i.e. the zero-based length itself
+        return position;
+    }
+}
@@ -0,0 +1,22 @@
+package simpleloginsystem;
+
+import java.util.Collections;
+import java.util.List;
+
+// One page of query results plus the token for the next page (null on the last page)
+public class MessagePage {
+    public static final MessagePage EMPTY = new MessagePage(Collections.emptyList(), null);
+
+    private final List<Message> messages;
+    private final String continuationToken;
+
+    public MessagePage(List<Message> messages, String continuationToken) {
+        this.messages = Collections.unmodifiableList(messages);
+        this.continuationToken = continuationToken;
+    }
+
+    // Getters
+    public List<Message> getMessages() { return messages; }
+    public String getContinuationToken() { return continuationToken; }
+    public boolean hasMore() { return continuationToken != null; }
+}
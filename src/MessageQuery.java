@@ -0,0 +1,191 @@
+package simpleloginsystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// A condition on messages, built from the factories below and combined with and()/or().
+// MessageStore.query() plans it against the store's indexes and returns matches lazily.
+//   MessageQuery.and(MessageQuery.recipient("+27831234567"), MessageQuery.state(MessageState.SENT))
+public final class MessageQuery {
+    enum Kind { ALL, RECIPIENT, SENDER, ID, HASH, LENGTH, CREATED, STATE, AND, OR }
+
+    private final Kind kind;
+    private final String value;
+    private final long from;
+    private final long to;
+    private final Set<MessageState> states;
+    private final List<MessageQuery> children;
+
+    private MessageQuery(Kind kind, String value, long from, long to, Set<MessageState> states,
+                         List<MessageQuery> children) {
+        this.kind = kind;
+        this.value = value;
+        this.from = from;
+        this.to = to;
+        this.states = states;
+        this.children = children;
+    }
+
+    private static MessageQuery of(Kind kind, String value, long from, long to) {
+        return new MessageQuery(kind, value, from, to, null, Collections.emptyList());
+    }
+
+    public static MessageQuery all() {
+        return of(Kind.ALL, null, 0, 0);
+    }
+
+    public static MessageQuery recipient(String recipient) {
+        return of(Kind.RECIPIENT, recipient, 0, 0);
+    }
+
+    public static MessageQuery sender(String sender) {
+        return of(Kind.SENDER, sender, 0, 0);
+    }
+
+    // The ID as shown to users; text that is not a canonical ID matches nothing
+    public static MessageQuery id(String messageID) {
+        long id = Message.parseMessageID(messageID);
+        boolean canonical = id >= 0 && Long.toString(id).equals(messageID);
+        return of(Kind.ID, messageID, canonical ? id : -1, 0);
+    }
+
+    public static MessageQuery hash(String messageHash) {
+        return of(Kind.HASH, messageHash, 0, 0);
+    }
+
+    // Text length in chars, both ends inclusive
+    public static MessageQuery lengthBetween(int min, int max) {
+        return of(Kind.LENGTH, null, min, max);
+    }
+
+    // Created in [fromMillis, toMillis), epoch millis
+    public static MessageQuery createdBetween(long fromMillis, long toMillis) {
+        return of(Kind.CREATED, null, fromMillis, toMillis);
+    }
+
+    public static MessageQuery state(MessageState first, MessageState... rest) {
+        return new MessageQuery(Kind.STATE, null, 0, 0, Collections.unmodifiableSet(EnumSet.of(first, rest)),
+                Collections.emptyList());
+    }
+
+    public static MessageQuery and(MessageQuery... queries) {
+        return combine(Kind.AND, queries);
+    }
+
+    public static MessageQuery or(MessageQuery... queries) {
+        return combine(Kind.OR, queries);
+    }
+
+    public MessageQuery and(MessageQuery other) {
+        return and(this, other);
+    }
+
+    public MessageQuery or(MessageQuery other) {
+        return or(this, other);
+    }
+
+    private static MessageQuery combine(Kind kind, MessageQuery[] queries) {
+        if (queries.length == 0) {
+            throw new IllegalArgumentException("At least one query is required");
+        }
+        // Flatten nested AND-of-AND / OR-of-OR so the planner sees every condition at once
+        List<MessageQuery> children = new ArrayList<>();
+        for (MessageQuery query : queries) {
+            if (query.kind == kind) {
+                children.addAll(query.children);
+            } else {
+                children.add(query);
+            }
+        }
+        return new MessageQuery(kind, null, 0, 0, null, Collections.unmodifiableList(children));
+    }
+
+    Kind getKind() { return kind; }
+    String getValue() { return value; }
+    long getFrom() { return from; }
+    long getTo() { return to; }
+    List<MessageQuery> getChildren() { return children; }
+
+    // Whether message, as a member of the given list, satisfies the query
+    public boolean test(Message message, MessageState state) {
+        switch (kind) {
+            case RECIPIENT:
+                return value.equals(message.getRecipient());
+            case SENDER:
+                return value.equals(message.getSender());
+            case ID:
+                return from >= 0 && message.getId() == from;
+            case HASH:
+                return message.hasMessageHash(value);
+            case LENGTH:
+                int length = message.getTextLength();
+                return length >= from && length <= to;
+            case CREATED:
+                return message.getCreatedAt() >= from && message.getCreatedAt() < to;
+            case STATE:
+                return states.contains(state);
+            case AND:
+                for (MessageQuery child : children) {
+                    if (!child.test(message, state)) {
+                        return false;
+                    }
+                }
+                return true;
+            case OR:
+                for (MessageQuery child : children) {
+                    if (child.test(message, state)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // Lists a match could come from
+    Set<MessageState> possibleStates() {
+        switch (kind) {
+            case STATE:
+                return states;
+            case AND: {
+                Set<MessageState> possible = EnumSet.allOf(MessageState.class);
+                for (MessageQuery child : children) {
+                    possible.retainAll(child.possibleStates());
+                }
+                return possible;
+            }
+            case OR: {
+                Set<MessageState> possible = EnumSet.noneOf(MessageState.class);
+                for (MessageQuery child : children) {
+                    possible.addAll(child.possibleStates());
+                }
+                return possible;
+            }
+            default:
+                return EnumSet.allOf(MessageState.class);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case ALL: return "all";
+            case LENGTH: return "length in [" + from + ", " + to + "]";
+            case CREATED: return "created in [" + from + ", " + to + ")";
+            case STATE: return "state in " + states;
+            case AND:
+            case OR: {
+                StringBuilder sb = new StringBuilder("(");
+                for (int i = 0; i < children.size(); i++) {
+                    sb.append(i == 0 ? "" : " " + kind + " ").append(children.get(i));
+                }
+                return sb.append(")").toString();
+            }
+            default: return kind.name().toLowerCase() + " = " + value;
+        }
+    }
+}
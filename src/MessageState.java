@@ -0,0 +1,6 @@
+package simpleloginsystem;
+
+// Which of the store's lists a message is in
+public enum MessageState {
+    SENT, STORED, DISREGARDED
+}
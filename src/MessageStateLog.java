@@ -0,0 +1,257 @@
+package simpleloginsystem;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Snapshot plus write-ahead log for the whole MessageStore state.
+// snapshot-N.qcs holds the full state as of generation N and wal-N.qcs every change made after it.
+// Recovery loads the newest complete snapshot and replays only the logs from its generation on.
+public class MessageStateLog {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String WAL_PREFIX = "wal-";
+
+    private final Path directory;
+    private final int snapshotInterval;
+    private final FlushPolicy flushPolicy;
+    private final RecordCodec codec = new BinarySegmentCodec();
+
+    private MessageJournal wal;
+    private long generation;
+    private long changesSinceSnapshot;
+    private ExecutorService snapshotter;
+    private CompletableFuture<Void> lastSnapshot = CompletableFuture.completedFuture(null);
+
+    // Writes the captured state as records; called on the snapshot thread
+    public interface StateWriter {
+        void writeTo(Consumer<JournalRecord> sink);
+    }
+
+    public MessageStateLog(Path directory, int snapshotInterval, FlushPolicy flushPolicy) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1");
+        }
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.flushPolicy = flushPolicy;
+    }
+
+    // Replay the latest snapshot and the log tail after it, then open the log for new changes
+    public synchronized LoadStats recover(Consumer<JournalRecord> handler) throws IOException {
+        Files.createDirectories(directory);
+        long snapshotGeneration = -1;
+        List<Long> walGenerations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long snapshot = parseGeneration(file, SNAPSHOT_PREFIX);
+                long log = parseGeneration(file, WAL_PREFIX);
+                if (snapshot > snapshotGeneration) {
+                    snapshotGeneration = snapshot;
+                }
+                if (log >= 0) {
+                    walGenerations.add(log);
+                }
+            }
+        }
+        Collections.sort(walGenerations);
+
+        LoadStats stats = LoadStats.empty();
+        generation = Math.max(snapshotGeneration, 0);
+        if (snapshotGeneration >= 0) {
+            stats = stats.plus(replayFile(snapshotPath(snapshotGeneration), handler));
+        }
+        changesSinceSnapshot = 0;
+        for (long log : walGenerations) {
+            if (log < snapshotGeneration) {
+                continue; // already folded into the snapshot, left behind by a crash
+            }
+            LoadStats walStats = replayFile(walPath(log), handler);
+            stats = stats.plus(walStats);
+            changesSinceSnapshot += walStats.getRecordCount();
+            generation = Math.max(generation, log);
+        }
+
+        wal = openLog(generation);
+        return stats;
+    }
+
+    // Log one change; completes once it is durable
+    public CompletableFuture<Void> append(JournalRecord record) {
+        MessageJournal current;
+        synchronized (this) {
+            if (wal == null) {
+                return CompletableFuture.failedFuture(new IOException("State log has not been recovered"));
+            }
+            current = wal;
+            changesSinceSnapshot++;
+        }
+        return current.submit(record);
+    }
+
+    // True once enough changes have piled up and no snapshot is being written
+    public synchronized boolean isSnapshotDue() {
+        return changesSinceSnapshot >= snapshotInterval && lastSnapshot.isDone();
+    }
+
+    // Switch to a fresh log, then write the captured state as the new snapshot in the background.
+    // The caller must capture its state at the moment of the call, before any later change.
+    public synchronized CompletableFuture<Void> snapshot(StateWriter state) {
+        if (wal == null) {
+            return CompletableFuture.failedFuture(new IOException("State log has not been recovered"));
+        }
+        MessageJournal previous = wal;
+        long snapshotGeneration = generation + 1;
+        try {
+            wal = openLog(snapshotGeneration);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        generation = snapshotGeneration;
+        changesSinceSnapshot = 0;
+
+        lastSnapshot = CompletableFuture.runAsync(() -> {
+            // Pending writes to the old log still complete their futures
+            previous.close();
+            try {
+                writeSnapshot(snapshotGeneration, state);
+                deleteOlderThan(snapshotGeneration);
+            } catch (IOException e) {
+                System.err.println("Error writing store snapshot: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, snapshotter());
+        return lastSnapshot;
+    }
+
+    public void close() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = lastSnapshot;
+        }
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            // Already reported by the snapshot thread
+        }
+        synchronized (this) {
+            if (wal != null) {
+                wal.close();
+                wal = null;
+            }
+            if (snapshotter != null) {
+                snapshotter.shutdown();
+                snapshotter = null;
+            }
+        }
+    }
+
+    // Getters
+    public Path getDirectory() { return directory; }
+    public synchronized long getGeneration() { return generation; }
+    public synchronized long getChangesSinceSnapshot() { return changesSinceSnapshot; }
+
+    private void writeSnapshot(long snapshotGeneration, StateWriter state) throws IOException {
+        Path target = snapshotPath(snapshotGeneration);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            out.write(codec.header());
+            IOException[] failure = new IOException[1];
+            state.writeTo(record -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    out.write(codec.encode(record));
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.flush();
+            channel.force(true);
+        }
+        // Only a fully written snapshot ever carries the final name
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteOlderThan(long snapshotGeneration) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long snapshot = parseGeneration(file, SNAPSHOT_PREFIX);
+                long log = parseGeneration(file, WAL_PREFIX);
+                if ((snapshot >= 0 && snapshot < snapshotGeneration) || (log >= 0 && log < snapshotGeneration)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private LoadStats replayFile(Path file, Consumer<JournalRecord> handler) throws IOException {
+        MessageJournal journal = new MessageJournal(file, null, codec);
+        try {
+            return journal.replay(handler);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private MessageJournal openLog(long logGeneration) {
+        MessageJournal log = new MessageJournal(walPath(logGeneration), null, codec);
+        log.openWriter(flushPolicy);
+        return log;
+    }
+
+    private synchronized ExecutorService snapshotter() {
+        if (snapshotter == null) {
+            snapshotter = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "store-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return snapshotter;
+    }
+
+    private Path snapshotPath(long snapshotGeneration) {
+        return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + BinarySegmentCodec.EXTENSION);
+    }
+
+    private Path walPath(long logGeneration) {
+        return directory.resolve(WAL_PREFIX + logGeneration + BinarySegmentCodec.EXTENSION);
+    }
+
+    // Generation number from names like snapshot-12.qcs, or -1 for any other file
+    private static long parseGeneration(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(BinarySegmentCodec.EXTENSION)) {
+            return -1;
+        }
+        String number = name.substring(prefix.length(), name.length() - BinarySegmentCodec.EXTENSION.length());
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,119 +1,936 @@
 package simpleloginsystem;
 
 import java.util.*;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
+// Thread-safe: adds, lookups and deletes may run concurrently from many sessions.
+// Each list is a skip list ordered by a store-wide sequence number; indexes are striped.
+// Reports read a snapshot: every change that completed before it began, none started after.
 public class MessageStore {
-    private List<Message> sentMessages;
-    private List<Message> storedMessages;
-    private List<Message> disregardedMessages;
-    private Map<Message, String> messageSenders;
+    // Scans filter this many entries at a time; blocks of at least PARALLEL_SCAN_MIN go parallel
+    private static final int SCAN_BLOCK = 4096;
+    private static final int PARALLEL_SCAN_MIN = 1024;
+    // Spill file of a memory-bounded store; rewritten from scratch on every open
+    static final String COLD_TEXT_FILE = "cold-text.seg";
+    private static final MessageQuery SENT = MessageQuery.state(MessageState.SENT);
+    private static final MessageQuery STORED = MessageQuery.state(MessageState.STORED);
+    private static final MessageQuery SENT_OR_STORED = MessageQuery.state(MessageState.SENT, MessageState.STORED);
+
+    private final Section sentMessages = new Section();
+    private final Section storedMessages = new Section();
+    private final Section disregardedMessages = new Section();
+    private final AtomicInteger sentCount = new AtomicInteger();
+
+    // Constant-time lookups by message ID and hash, one pair per searchable list
+    private final StripedKeyIndex sentById = new StripedKeyIndex();
+    private final StripedKeyIndex sentByHash = new StripedKeyIndex();
+    private final StripedKeyIndex storedById = new StripedKeyIndex();
+    private final StripedKeyIndex storedByHash = new StripedKeyIndex();
+    private final RecipientIndex recipients = new RecipientIndex();
+    private final RecipientTimeline timelines = new RecipientTimeline();
+    private final StripedLengthIndex sentLengths =
+            new StripedLengthIndex(StripedKeyIndex.defaultStripes(), this::sequenceOf);
+    // Words of sent and stored messages; off while loading, then restored from disk or rebuilt
+    private final TextIndex textIndex = new TextIndex();
+    private volatile boolean indexingText;
+
+    // Sequence numbers for adds, deletes and snapshots
+    private final AtomicLong clock = new AtomicLong();
+    // Open snapshots by the clock value seen when they registered (a count per value)
+    private final ConcurrentSkipListMap<Long, Integer> activeSnapshots = new ConcurrentSkipListMap<>();
+    // Deleted entries an open snapshot may still need to see
+    private final ConcurrentLinkedQueue<Entry> pendingRemovals = new ConcurrentLinkedQueue<>();
+
+    private MessageJournal journal;
+    private MessageStateLog stateLog;
+    private LoadStats loadStats = LoadStats.empty();
+    // Optional off-heap home for message text; null keeps text on the heap
+    private final TextArena textArena;
+    // Memory-bounded stores only: which messages keep their text on the heap, and the
+    // file the others' text is spilled to
+    private final HotMessageCache hotMessages;
+    private final TextArena coldText;
+    // Where the ID generator's high-water mark is kept while this store is open
+    private final Path idMarkFile;
 
     public MessageStore() {
-        sentMessages = new ArrayList<>();
-        storedMessages = new ArrayList<>();
-        disregardedMessages = new ArrayList<>();
-        messageSenders = new HashMap<>();
+        this(MessageJournal.getDefault());
+    }
+
+    public MessageStore(MessageJournal journal) {
+        this(journal, FlushPolicy.batchSize(256));
+    }
+
+    public MessageStore(MessageJournal journal, FlushPolicy flushPolicy) {
+        this(journal, flushPolicy, null);
+    }
+
+    public MessageStore(MessageJournal journal, FlushPolicy flushPolicy, TextArena textArena) {
+        this.journal = journal;
+        this.textArena = textArena;
+        this.hotMessages = null;
+        this.coldText = null;
+        Path journalPath = journal.getJournalPath();
+        this.idMarkFile = journalPath.resolveSibling(journalPath.getFileName() + MessageIdGenerator.MARK_EXTENSION);
+        MessageIds.getGenerator().addMarkFile(idMarkFile);
+        journal.openWriter(flushPolicy);
         loadStoredMessages();
+        openTextIndex(textIndexFile());
     }
 
-    // Load stored messages from JSON file on startup
-    private void loadStoredMessages() {
+    // Keep the whole store state (all three lists and senders) in a snapshot plus write-ahead log
+    public MessageStore(Path stateDirectory) {
+        this(stateDirectory, MessageStateLog.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public MessageStore(Path stateDirectory, int snapshotInterval) {
+        this(stateDirectory, snapshotInterval, null);
+    }
+
+    // Message text is kept in textArena while the message is in the store
+    public MessageStore(Path stateDirectory, int snapshotInterval, TextArena textArena) {
+        this(stateDirectory, snapshotInterval, textArena, 0);
+    }
+
+    // Memory-bounded: only hotMessageBudget messages keep their text on the heap. The rest
+    // is spilled to a file in stateDirectory and read back when the message is looked up.
+    public MessageStore(Path stateDirectory, int snapshotInterval, int hotMessageBudget) {
+        this(stateDirectory, snapshotInterval, null, checkBudget(hotMessageBudget));
+    }
+
+    private MessageStore(Path stateDirectory, int snapshotInterval, TextArena textArena, int hotMessageBudget) {
+        this.textArena = textArena;
+        this.stateLog = new MessageStateLog(stateDirectory, snapshotInterval, FlushPolicy.batchSize(256));
+        if (hotMessageBudget > 0) {
+            this.coldText = new TextArena(stateDirectory.resolve(COLD_TEXT_FILE), TextArena.DEFAULT_CHUNK_SIZE);
+            this.hotMessages = new HotMessageCache(hotMessageBudget, coldText);
+        } else {
+            this.coldText = null;
+            this.hotMessages = null;
+        }
+        this.idMarkFile = stateDirectory.resolve(MessageIdGenerator.MARK_FILE);
+        MessageIds.getGenerator().addMarkFile(idMarkFile);
+        recoverState();
+        openTextIndex(stateDirectory.resolve(TextIndex.FILE_NAME));
+    }
+
+    private static int checkBudget(int hotMessageBudget) {
+        if (hotMessageBudget < 1) {
+            throw new IllegalArgumentException("Hot message budget must be at least 1");
+        }
+        return hotMessageBudget;
+    }
+
+    // Latest snapshot plus the changes logged after it; later records for an ID in the same list
+    // replace earlier ones, and a delete only removes the message from the list it names
+    private void recoverState() {
+        Map<String, JournalRecord> live = new LinkedHashMap<>();
         try {
-            File file = new File("messages.json");
-            if (file.exists()) {
-                String content = new String(Files.readAllBytes(Paths.get("messages.json")));
-                JSONArray messagesArray = new JSONArray(content);
-
-                for (int i = 0; i < messagesArray.length(); i++) {
-                    JSONObject msgJson = messagesArray.getJSONObject(i);
-                    // Create message with placeholder message number (0)
-                    Message message = new Message(
-                            msgJson.getString("recipient"),
-                            msgJson.getString("messageText"),
-                            0
-                    );
-                    storedMessages.add(message);
+            loadStats = stateLog.recover(record -> {
+                String key = record.getList() + ":" + record.getMessageID();
+                if (record.isDelete()) {
+                    live.remove(key);
+                } else {
+                    live.put(key, record);
                 }
+            });
+        } catch (IOException e) {
+            System.err.println("Error recovering message store: " + e.getMessage());
+        }
+
+        for (JournalRecord record : live.values()) {
+            switch (record.getOp()) {
+                case SEND:
+                    record.getMessage().setSender(record.getSender());
+                    insert(sentMessages, record.getMessage());
+                    break;
+                case DISREGARD:
+                    insert(disregardedMessages, record.getMessage());
+                    break;
+                default:
+                    insert(storedMessages, record.getMessage());
+                    break;
             }
+        }
+        reserveLoadedIds();
+    }
+
+    // Stream stored messages from the journal on startup, one record at a time
+    private void loadStoredMessages() {
+        List<Message> loaded = new ArrayList<>();
+        // Tombstones only remember how many messages had been loaded when they were written
+        Map<String, Integer> deletedAt = new HashMap<>();
+        try {
+            loadStats = journal.replay(record -> {
+                if (record.isDelete()) {
+                    deletedAt.put(record.getMessageID(), loaded.size());
+                } else {
+                    loaded.add(record.getMessage());
+                }
+            });
         } catch (IOException e) {
             System.err.println("Error loading stored messages: " + e.getMessage());
         }
+
+        for (int i = 0; i < loaded.size(); i++) {
+            Message msg = loaded.get(i);
+            Integer deletedBefore = deletedAt.get(msg.getMessageID());
+            if (deletedBefore == null || deletedBefore <= i) {
+                insert(storedMessages, msg);
+            }
+        }
+        reserveLoadedIds();
+    }
+
+    // One of the lists: entries in the order they were added, plus the live ones by identity
+    private static final class Section {
+        final ConcurrentSkipListMap<Long, Entry> order = new ConcurrentSkipListMap<>();
+        final ConcurrentHashMap<Message, Entry> live = new ConcurrentHashMap<>();
+    }
+
+    // One message in one of the lists
+    private static final class Entry {
+        private static final AtomicLongFieldUpdater<Entry> DELETED =
+                AtomicLongFieldUpdater.newUpdater(Entry.class, "deletedSeq");
+
+        final Message message;
+        final Section section;
+        final long seq;
+        volatile long deletedSeq = Long.MAX_VALUE;
+
+        Entry(Message message, Section section, long seq) {
+            this.message = message;
+            this.section = section;
+            this.seq = seq;
+        }
+
+        boolean visibleAt(long stamp) {
+            return seq < stamp && deletedSeq > stamp;
+        }
+    }
+
+    private Entry insert(Section section, Message message) {
+        return insert(section, message, true);
+    }
+
+    // Batches leave the text index to the caller, to add all their messages in one go.
+    // A message can be in a list only once.
+    private Entry insert(Section section, Message message, boolean indexText) {
+        long seq = clock.incrementAndGet();
+        Entry entry = new Entry(message, section, seq);
+        if (section.live.putIfAbsent(message, entry) != null) {
+            throw new IllegalArgumentException("Message " + message.getMessageID() + " is already in this list");
+        }
+        if (textArena != null) {
+            message.moveTextTo(textArena);
+        } else if (hotMessages != null) {
+            hotMessages.admit(message);
+        }
+        // Visible to snapshots before any index can hand it out
+        section.order.put(seq, entry);
+        if (section == sentMessages) {
+            sentById.add(message.getId(), message);
+            sentByHash.add(MessageKeyIndex.fingerprint(message.getMessageHash()), message);
+            recipients.add(RecipientIndex.SENT, message, seq);
+            timelines.add(message, seq);
+            sentLengths.add(seq, message);
+            sentCount.incrementAndGet();
+        } else if (section == storedMessages) {
+            storedById.add(message.getId(), message);
+            storedByHash.add(MessageKeyIndex.fingerprint(message.getMessageHash()), message);
+            recipients.add(RecipientIndex.STORED, message, seq);
+            timelines.add(message, seq);
+        }
+        if (indexText && indexingText && isOnlyTextCopy(section, message)) {
+            textIndex.add(message.getId(), message.getMessageText());
+        }
+        return entry;
+    }
+
+    // Marks the entry deleted; false if another thread deleted it first
+    private boolean remove(Entry entry) {
+        long seq = clock.incrementAndGet();
+        if (!Entry.DELETED.compareAndSet(entry, Long.MAX_VALUE, seq)) {
+            return false;
+        }
+        Message message = entry.message;
+        if (entry.section == sentMessages) {
+            sentById.remove(message.getId(), message);
+            sentByHash.remove(MessageKeyIndex.fingerprint(message.getMessageHash()), message);
+            recipients.remove(RecipientIndex.SENT, message, entry.seq);
+            timelines.remove(message, entry.seq);
+            sentLengths.remove(entry.seq, message);
+            sentCount.decrementAndGet();
+        } else if (entry.section == storedMessages) {
+            storedById.remove(message.getId(), message);
+            storedByHash.remove(MessageKeyIndex.fingerprint(message.getMessageHash()), message);
+            recipients.remove(RecipientIndex.STORED, message, entry.seq);
+            timelines.remove(message, entry.seq);
+        }
+        entry.section.live.remove(message, entry);
+        if (indexingText && isOnlyTextCopy(entry.section, message)) {
+            textIndex.remove(message.getId(), message.getMessageText());
+        }
+        // Open snapshots may still list it, so the list entry goes once they are closed
+        pendingRemovals.add(entry);
+        reclaim();
+        return true;
+    }
+
+    private long sequenceOf(Message message) {
+        Entry entry = sentMessages.live.get(message);
+        return entry == null ? Long.MAX_VALUE : entry.seq;
+    }
+
+    // Entry of the first live message with this ID
+    private static Entry findLiveById(Section section, StripedKeyIndex index, long id) {
+        Message found = index.find(id, msg -> msg.getId() == id && section.live.containsKey(msg));
+        return found == null ? null : section.live.get(found);
+    }
+
+    // Loaded IDs must never be handed out again by the ID generator
+    private void reserveLoadedIds() {
+        long[] ids = new long[1024];
+        int count = 0;
+        for (Section section : new Section[] {sentMessages, storedMessages, disregardedMessages}) {
+            for (Entry entry : section.order.values()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = entry.message.getId();
+            }
+        }
+        MessageIds.getGenerator().reserve(ids, count);
+    }
+
+    // A consistent read view: entries added before it and not deleted before it
+    private final class Snapshot implements AutoCloseable {
+        final long registered;
+        final long stamp;
+
+        Snapshot() {
+            // Register first, so no delete after this point can be reclaimed under us
+            registered = clock.get();
+            activeSnapshots.merge(registered, 1, Integer::sum);
+            stamp = clock.incrementAndGet();
+        }
+
+        void forEach(Section section, Consumer<Entry> action) {
+            for (Entry entry : section.order.headMap(stamp).values()) {
+                if (entry.visibleAt(stamp)) {
+                    action.accept(entry);
+                }
+            }
+        }
+
+        List<Message> messages(Section section) {
+            List<Message> messages = new ArrayList<>();
+            forEach(section, entry -> messages.add(entry.message));
+            return messages;
+        }
+
+        @Override
+        public void close() {
+            activeSnapshots.computeIfPresent(registered, (key, count) -> count == 1 ? null : count - 1);
+            reclaim();
+        }
+    }
+
+    // Drop deleted entries from the lists once no open snapshot can see them. Deletes queue up
+    // roughly in order, so this only looks at the head of the queue: an entry stuck behind a
+    // later delete waits for the next call, and an old open snapshot costs nothing per delete.
+    private void reclaim() {
+        if (pendingRemovals.isEmpty()) {
+            return;
+        }
+        synchronized (pendingRemovals) {
+            // Read the clock before the registrations: a snapshot registering later sees a newer clock
+            long watermark = clock.get();
+            Map.Entry<Long, Integer> oldest = activeSnapshots.firstEntry();
+            if (oldest != null) {
+                watermark = Math.min(watermark, oldest.getKey());
+            }
+            Entry entry;
+            // Every snapshot registered at or after the delete has a later stamp, so cannot see it
+            while ((entry = pendingRemovals.peek()) != null && entry.deletedSeq <= watermark) {
+                pendingRemovals.poll();
+                entry.section.order.remove(entry.seq, entry);
+                releaseText(entry.message);
+            }
+        }
+    }
+
+    // How a query finds candidates in the sent and stored lists through one of the indexes.
+    // Lists without a usable index (and the disregarded list, which has none) are scanned.
+    private static final class Plan {
+        final String description;
+        final long estimate;
+        final Function<Section, Iterator<Message>> candidates;
+
+        Plan(String description, long estimate, Function<Section, Iterator<Message>> candidates) {
+            this.description = description;
+            this.estimate = estimate;
+            this.candidates = candidates;
+        }
+    }
+
+    // The cheapest index plan for query, or null if it needs a scan
+    private Plan plan(MessageQuery query) {
+        switch (query.getKind()) {
+            case ID: {
+                long id = query.getFrom();
+                return new Plan("id index", 1, section -> {
+                    List<Message> found = new ArrayList<>();
+                    if (id >= 0) {
+                        (section == sentMessages ? sentById : storedById).findAll(id, msg -> msg.getId() == id, found);
+                    }
+                    return found.iterator();
+                });
+            }
+            case HASH: {
+                String hash = query.getValue();
+                return new Plan("hash index", 1, section -> {
+                    List<Message> found = new ArrayList<>();
+                    (section == sentMessages ? sentByHash : storedByHash).findAll(MessageKeyIndex.fingerprint(hash),
+                            msg -> msg.hasMessageHash(hash), found);
+                    return found.iterator();
+                });
+            }
+            case RECIPIENT: {
+                String recipient = query.getValue();
+                return new Plan("recipient index", recipients.count(recipient), section ->
+                        recipients.iterator(recipient, section == sentMessages ? RecipientIndex.SENT : RecipientIndex.STORED));
+            }
+            case AND:
+                return planAnd(query.getChildren());
+            case OR:
+                return planOr(query.getChildren());
+            default:
+                return null;
+        }
+    }
+
+    // Every condition has to hold, so any one child's candidates will do: take the fewest.
+    // A recipient together with a time range can walk just that part of the recipient's timeline.
+    private Plan planAnd(List<MessageQuery> children) {
+        Plan best = null;
+        String recipient = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        boolean timed = false;
+        for (MessageQuery child : children) {
+            Plan plan = plan(child);
+            if (plan != null && (best == null || plan.estimate < best.estimate)) {
+                best = plan;
+            }
+            if (child.getKind() == MessageQuery.Kind.RECIPIENT) {
+                recipient = child.getValue();
+            } else if (child.getKind() == MessageQuery.Kind.CREATED) {
+                from = Math.max(from, child.getFrom());
+                to = Math.min(to, child.getTo());
+                timed = true;
+            }
+        }
+        if (recipient != null && timed) {
+            // No per-range counts are kept; assume the range holds half the recipient's messages
+            long estimate = recipients.count(recipient) / 2;
+            if (best == null || estimate < best.estimate) {
+                String r = recipient;
+                long f = from;
+                long t = to;
+                // The timeline has an entry per list a message is in; keep this list's one
+                best = new Plan("recipient timeline", estimate, section -> timelines.iterator(r, f, t,
+                        (message, seq) -> {
+                            Entry entry = section.live.get(message);
+                            return entry != null && entry.seq == seq;
+                        }));
+            }
+        }
+        return best;
+    }
+
+    // Either condition may hold, so every child needs an index; candidates are the union.
+    // A candidate that an earlier child also matches was already produced by that child.
+    private Plan planOr(List<MessageQuery> children) {
+        List<Plan> plans = new ArrayList<>();
+        long estimate = 0;
+        for (MessageQuery child : children) {
+            Plan plan = plan(child);
+            if (plan == null) {
+                return null;
+            }
+            plans.add(plan);
+            estimate += plan.estimate;
+        }
+        StringJoiner description = new StringJoiner(" + ", "union(", ")");
+        plans.forEach(plan -> description.add(plan.description));
+        return new Plan(description.toString(), estimate, section -> new LookaheadIterator<Message>() {
+            private final MessageState state = section == sentMessages ? MessageState.SENT : MessageState.STORED;
+            private int nextPlan;
+            private Iterator<Message> current = Collections.emptyIterator();
+
+            @Override
+            Message computeNext() {
+                while (true) {
+                    while (current.hasNext()) {
+                        Message message = current.next();
+                        if (!matchesAny(children, nextPlan - 1, message, state)) {
+                            return message;
+                        }
+                    }
+                    if (nextPlan == plans.size()) {
+                        return null;
+                    }
+                    current = plans.get(nextPlan++).candidates.apply(section);
+                }
+            }
+        });
+    }
+
+    private static boolean matchesAny(List<MessageQuery> queries, int count, Message message, MessageState state) {
+        for (int i = 0; i < count; i++) {
+            if (queries.get(i).test(message, state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Section sectionOf(MessageState state) {
+        switch (state) {
+            case SENT: return sentMessages;
+            case STORED: return storedMessages;
+            default: return disregardedMessages;
+        }
+    }
+
+    // Entries of one list matching query in the snapshot, from the plan's index or a scan
+    private Iterator<Entry> matches(MessageState state, Plan plan, MessageQuery query, Snapshot snapshot) {
+        Section section = sectionOf(state);
+        long stamp = snapshot.stamp;
+        Predicate<Entry> match = entry -> entry.visibleAt(stamp) && query.test(entry.message, state);
+        if (plan == null || state == MessageState.DISREGARDED) {
+            return new ScanIterator(section.order.headMap(stamp).values().iterator(), match);
+        }
+        // Indexes hold live messages only, so one deleted while the query runs may be missed
+        Iterator<Message> candidates = plan.candidates.apply(section);
+        return new LookaheadIterator<Entry>() {
+            @Override
+            Entry computeNext() {
+                while (candidates.hasNext()) {
+                    Entry entry = section.live.get(candidates.next());
+                    if (entry != null && match.test(entry)) {
+                        touch(entry.message);
+                        return entry;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private static String describe(Plan plan, Set<MessageState> states) {
+        if (states.isEmpty()) {
+            return "no lists";
+        }
+        StringJoiner description = new StringJoiner("; ");
+        for (MessageState state : states) {
+            boolean indexed = plan != null && state != MessageState.DISREGARDED;
+            description.add(state.name().toLowerCase() + ": "
+                    + (indexed ? plan.description + " (~" + plan.estimate + ")" : "scan"));
+        }
+        return description.toString();
+    }
+
+    // An iterator that works out its next element when asked; computeNext returns null at the end
+    private abstract static class LookaheadIterator<T> implements Iterator<T> {
+        private T next;
+
+        abstract T computeNext();
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    // Filters a list a block at a time, large blocks on all cores, keeping list order
+    private static final class ScanIterator extends LookaheadIterator<Entry> {
+        private final Iterator<Entry> entries;
+        private final Predicate<Entry> match;
+        private final Entry[] block = new Entry[SCAN_BLOCK];
+        private Entry[] matched = new Entry[0];
+        private int position;
+
+        ScanIterator(Iterator<Entry> entries, Predicate<Entry> match) {
+            this.entries = entries;
+            this.match = match;
+        }
+
+        @Override
+        Entry computeNext() {
+            while (position == matched.length) {
+                if (!entries.hasNext()) {
+                    return null;
+                }
+                int count = 0;
+                while (count < SCAN_BLOCK && entries.hasNext()) {
+                    block[count++] = entries.next();
+                }
+                Stream<Entry> stream = Arrays.stream(block, 0, count);
+                matched = (count >= PARALLEL_SCAN_MIN ? stream.parallel() : stream).filter(match).toArray(Entry[]::new);
+                Arrays.fill(block, 0, count, null);
+                position = 0;
+            }
+            return matched[position++];
+        }
+    }
+
+    // Whether message is in the text index only because of this list: a message
+    // in both the sent and stored lists is indexed once
+    private boolean isOnlyTextCopy(Section section, Message message) {
+        if (section == sentMessages) {
+            return !storedMessages.live.containsKey(message);
+        }
+        return section == storedMessages && !sentMessages.live.containsKey(message);
+    }
+
+    // Reuse the index saved at the last close if it covers exactly the loaded messages
+    private void openTextIndex(Path file) {
+        List<Message> indexed = new ArrayList<>();
+        sentMessages.order.values().forEach(entry -> indexed.add(entry.message));
+        for (Entry entry : storedMessages.order.values()) {
+            if (!sentMessages.live.containsKey(entry.message)) {
+                indexed.add(entry.message);
+            }
+        }
+        long idSum = 0;
+        for (Message message : indexed) {
+            idSum += TextIndex.mix(message.getId());
+        }
+        if (file == null || !textIndex.load(file, TextIndex.checksum(indexed.size(), idSum))) {
+            for (Message message : indexed) {
+                textIndex.add(message.getId(), message.getMessageText());
+            }
+        }
+        indexingText = true;
+    }
+
+    // Journal mode keeps the text index next to the journal, e.g. messages.jsonl.qti
+    private Path textIndexFile() {
+        Path journalPath = journal.getJournalPath();
+        return journalPath.resolveSibling(journalPath.getFileName() + TextIndex.EXTENSION);
+    }
+
+    private void saveTextIndex(Path file) {
+        try {
+            textIndex.save(file);
+        } catch (IOException e) {
+            System.err.println("Error saving text index: " + e.getMessage());
+        }
+    }
+
+    // Give the arena slot back once the message is in none of the lists; callers still
+    // holding the message keep a heap copy of the text
+    private void releaseText(Message message) {
+        if (textArena == null && hotMessages == null) {
+            return;
+        }
+        for (Section section : new Section[] {sentMessages, storedMessages, disregardedMessages}) {
+            if (section.live.containsKey(message)) {
+                return;
+            }
+        }
+        if (textArena != null) {
+            message.releaseText(textArena);
+        } else {
+            hotMessages.remove(message);
+        }
+    }
+
+    // A message found by a lookup counts as used; spilled text is read back from disk.
+    // Scans do not count, so a report over every message leaves the hot set alone.
+    private void touch(Message message) {
+        if (hotMessages != null) {
+            hotMessages.touch(message);
+        }
     }
 
     // Add methods for different message types
     public void addSentMessage(Message message, String sender) {
-        sentMessages.add(message);
-        messageSenders.put(message, sender);
+        message.setSender(sender);
+        insert(sentMessages, message);
+        if (stateLog != null) {
+            logChange(JournalRecord.send(message, sender, System.currentTimeMillis())).exceptionally(this::logFailed);
+        }
     }
 
     public void addStoredMessage(Message message) {
-        storedMessages.add(message);
+        insert(storedMessages, message);
+        if (stateLog != null) {
+            logChange(JournalRecord.store(message, System.currentTimeMillis())).exceptionally(this::logFailed);
+        }
     }
 
     public void addDisregardedMessage(Message message) {
-        disregardedMessages.add(message);
+        insert(disregardedMessages, message);
+        if (stateLog != null) {
+            logChange(JournalRecord.disregard(message, System.currentTimeMillis())).exceptionally(this::logFailed);
+        }
     }
 
-    // Getters
-    public List<Message> getSentMessages() { return sentMessages; }
-    public List<Message> getStoredMessages() { return storedMessages; }
-    public List<Message> getDisregardedMessages() { return disregardedMessages; }
+    // Store a message and persist it in the background; completes once it is durable
+    public CompletableFuture<Void> storeMessage(Message message) {
+        insert(storedMessages, message);
+        if (stateLog != null) {
+            return logChange(JournalRecord.store(message, System.currentTimeMillis()));
+        }
+        return journal.submit(message);
+    }
+
+    // Add many messages at once, e.g. from an import: messages with a sender go to the sent
+    // list, the rest to stored. Completes once they are all written to the log or journal.
+    public CompletableFuture<Void> addBatch(List<Message> messages) {
+        long[] ids = new long[messages.size()];
+        CharSequence[] texts = new CharSequence[messages.size()];
+        int indexed = 0;
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Message message : messages) {
+            boolean sent = message.getSender() != null;
+            Section section = sent ? sentMessages : storedMessages;
+            insert(section, message, false);
+            if (indexingText && isOnlyTextCopy(section, message)) {
+                ids[indexed] = message.getId();
+                texts[indexed++] = message.getMessageText();
+            }
+            if (stateLog != null) {
+                written.add(logChange(sent ? JournalRecord.send(message, message.getSender(), now)
+                        : JournalRecord.store(message, now)));
+            } else if (!sent) {
+                written.add(journal.submit(message));
+            }
+        }
+        textIndex.addAll(ids, texts, indexed);
+        return CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Bulk import from a JSON Lines or CSV file; see MessageImporter for the layout
+    public ImportReport importFile(Path file) throws IOException {
+        return new MessageImporter(this).importFile(file);
+    }
+
+    // Write the current state as a new snapshot; later changes go to a fresh log
+    public CompletableFuture<Void> checkpoint() {
+        if (stateLog == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // The read view is opened after the switch to the new log, so every change is in one or the other
+        return stateLog.snapshot(sink -> {
+            try (Snapshot snapshot = new Snapshot()) {
+                snapshot.forEach(sentMessages, entry -> sink.accept(JournalRecord.send(entry.message, entry.message.getSender(), 0)));
+                snapshot.forEach(storedMessages, entry -> sink.accept(JournalRecord.store(entry.message, 0)));
+                snapshot.forEach(disregardedMessages, entry -> sink.accept(JournalRecord.disregard(entry.message, 0)));
+            }
+        });
+    }
+
+    private CompletableFuture<Void> logChange(JournalRecord record) {
+        CompletableFuture<Void> written = stateLog.append(record);
+        if (stateLog.isSnapshotDue()) {
+            checkpoint();
+        }
+        return written;
+    }
+
+    private Void logFailed(Throwable e) {
+        System.err.println("Error logging message store change: " + e.getMessage());
+        return null;
+    }
+
+    // Flush pending writes and release the journal
+    public void close() {
+        MessageIds.getGenerator().removeMarkFile(idMarkFile);
+        if (stateLog != null) {
+            saveTextIndex(stateLog.getDirectory().resolve(TextIndex.FILE_NAME));
+            stateLog.close();
+        } else {
+            // Sent messages are not in the journal, so the next start will not have them either
+            try (Snapshot snapshot = new Snapshot()) {
+                snapshot.forEach(sentMessages, entry -> {
+                    if (!storedMessages.live.containsKey(entry.message)) {
+                        textIndex.remove(entry.message.getId(), entry.message.getMessageText());
+                    }
+                });
+            }
+            saveTextIndex(textIndexFile());
+            journal.close();
+        }
+        if (coldText != null) {
+            coldText.close();
+            try {
+                Files.deleteIfExists(stateLog.getDirectory().resolve(COLD_TEXT_FILE));
+            } catch (IOException e) {
+                System.err.println("Error removing spilled text: " + e.getMessage());
+            }
+        }
+    }
+
+    // Hot cache figures of a memory-bounded store; empty otherwise
+    public CacheStats getCacheStats() {
+        return hotMessages == null ? CacheStats.empty() : hotMessages.stats();
+    }
+
+    // Getters (copies taken from a snapshot, in the order messages were added)
+    public List<Message> getSentMessages() { return snapshotOf(sentMessages); }
+    public List<Message> getStoredMessages() { return snapshotOf(storedMessages); }
+    public List<Message> getDisregardedMessages() { return snapshotOf(disregardedMessages); }
+    public int getSentCount() { return sentCount.get(); }
+    public LoadStats getLoadStats() { return loadStats; }
+
+    private List<Message> snapshotOf(Section section) {
+        try (Snapshot snapshot = new Snapshot()) {
+            return snapshot.messages(section);
+        }
+    }
+
+    // Messages matching query, produced lazily from a snapshot: sent ones first, then stored,
+    // then disregarded. A message in more than one list comes back once.
+    //   try (QueryResult r = store.query(MessageQuery.recipient(number).and(MessageQuery.lengthBetween(0, 50)))) { ... }
+    public QueryResult query(MessageQuery query) {
+        Plan plan = plan(query);
+        Set<MessageState> states = query.possibleStates();
+        List<MessageState> order = new ArrayList<>(states);
+        Snapshot snapshot = new Snapshot();
+        Iterator<Message> matches = new LookaheadIterator<Message>() {
+            private int nextState;
+            private Iterator<Entry> current = Collections.emptyIterator();
+
+            @Override
+            Message computeNext() {
+                while (true) {
+                    while (current.hasNext()) {
+                        Message message = current.next().message;
+                        if (nextState == 1 || !matchedEarlier(message, nextState - 1)) {
+                            return message;
+                        }
+                    }
+                    if (nextState == order.size()) {
+                        return null;
+                    }
+                    current = matches(order.get(nextState++), plan, query, snapshot);
+                }
+            }
+
+            // Whether an earlier list has message and it matched there. Checked again rather than
+            // remembered, so memory stays constant however many messages match. (A message
+            // deleted from an earlier list while the query runs may come back from a later one.)
+            private boolean matchedEarlier(Message message, int lists) {
+                for (int i = 0; i < lists; i++) {
+                    MessageState earlier = order.get(i);
+                    Entry entry = sectionOf(earlier).live.get(message);
+                    if (entry != null && entry.visibleAt(snapshot.stamp) && query.test(message, earlier)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return new QueryResult(matches, snapshot, describe(plan, states));
+    }
+
+    // How query() would find the matches, e.g. "sent: id index (~1); stored: id index (~1)"
+    public String explain(MessageQuery query) {
+        return describe(plan(query), query.possibleStates());
+    }
+
+    // The first match of query, or null
+    private Message first(MessageQuery query) {
+        try (QueryResult result = query(query)) {
+            return result.first();
+        }
+    }
 
     // Part 3 Operations
 
     // a) List sender & recipient of all Sent messages
     public String listSendersAndRecipients() {
-        if (sentMessages.isEmpty()) {
-            return "No sent messages yet.";
+        StringWriter out = new StringWriter();
+        try {
+            writeSendersAndRecipients(new ReportWriter(out, ReportWriter.Format.TEXT));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return out.toString();
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for (Message msg : sentMessages) {
-            String sender = messageSenders.get(msg);
-            sb.append("Sender: ").append(sender).append("\n")
-                    .append("Recipient: ").append(msg.getRecipient()).append("\n")
-                    .append("---\n");
+    // Streams the sender/recipient list row by row; returns the number of rows
+    public int writeSendersAndRecipients(ReportWriter out) throws IOException {
+        out.begin("Sender", "Recipient");
+        try (QueryResult sent = query(SENT)) {
+            while (sent.hasNext()) {
+                Message msg = sent.next();
+                out.row(msg.getSender(), msg.getRecipient());
+            }
         }
-        return sb.toString();
+        return out.finish("No sent messages yet.");
     }
 
     // b) Show longest Sent message
     public String showLongestMessage() {
-        if (sentMessages.isEmpty()) {
+        // Ties go to the earliest message, as with the old linear scan
+        Message longest = sentLengths.longest();
+        if (longest == null) {
             return "No sent messages yet.";
         }
 
-        Message longest = sentMessages.get(0);
-        for (Message msg : sentMessages) {
-            if (msg.getMessageText().length() > longest.getMessageText().length()) {
-                longest = msg;
-            }
-        }
-
         return "Longest Message: " + longest.getMessageText();
     }
 
+    // The k longest sent messages, longest first
+    public List<Message> getLongestMessages(int k) {
+        return sentLengths.topK(k);
+    }
+
+    // Sent message length at the given percentile (nearest rank), or -1 with no sent messages
+    public int getLengthPercentile(double percentile) {
+        return sentLengths.percentile(percentile);
+    }
+
     // c) Search by Message ID
     public String searchByMessageId(String messageId) {
-        // Search in sent messages
-        for (Message msg : sentMessages) {
-            if (msg.getMessageID().equals(messageId)) {
-                return "Recipient: " + msg.getRecipient() + "\nMessage: " + msg.getMessageText();
-            }
-        }
-
-        // Search in stored messages
-        for (Message msg : storedMessages) {
-            if (msg.getMessageID().equals(messageId)) {
-                return "Recipient: " + msg.getRecipient() + "\nMessage: " + msg.getMessageText();
-            }
+        // Sent messages take precedence over stored ones, as query() returns them first
+        Message msg = first(MessageQuery.id(messageId).and(SENT_OR_STORED));
+        if (msg != null) {
+            return "Recipient: " + msg.getRecipient() + "\nMessage: " + msg.getMessageText();
         }
 
         return "Message ID not found.";
@@ -122,102 +939,158 @@ public class MessageStore {
     // d) Find all messages for a Recipient
     public String findByRecipient(String recipient) {
         StringBuilder sb = new StringBuilder();
-        boolean found = false;
-
-        // Search in sent messages
-        for (Message msg : sentMessages) {
-            if (msg.getRecipient().equals(recipient)) {
-                sb.append("Message: ").append(msg.getMessageText()).append("\n")
-                        .append("Message ID: ").append(msg.getMessageID()).append("\n")
-                        .append("---\n");
-                found = true;
+        try {
+            if (writeByRecipient(recipient, sb) == 0) {
+                return "No messages found for recipient: " + recipient;
             }
+        } catch (IOException e) {
+            // StringBuilder does not throw
         }
+        return sb.toString();
+    }
 
-        // Search in stored messages
-        for (Message msg : storedMessages) {
-            if (msg.getRecipient().equals(recipient)) {
-                sb.append("Message: ").append(msg.getMessageText()).append("\n")
-                        .append("Message ID: ").append(msg.getMessageID()).append("\n")
-                        .append("---\n");
-                found = true;
+    // Stream every message for a recipient (sent first, then stored); returns how many were written
+    public int writeByRecipient(String recipient, Appendable out) throws IOException {
+        int count = 0;
+        try (QueryResult found = query(MessageQuery.recipient(recipient).and(SENT_OR_STORED))) {
+            while (found.hasNext()) {
+                appendRecipientEntry(out, found.next());
+                count++;
             }
         }
+        return count;
+    }
 
-        if (!found) {
-            return "No messages found for recipient: " + recipient;
+    // Sent and stored messages containing the query words, in message ID order.
+    // Query syntax: "hello world" (both), "hello OR hi" (either), "hel*" (prefix).
+    public MessagePage searchText(String query, String continuationToken, int limit) {
+        long after = -1;
+        if (continuationToken != null) {
+            try {
+                after = Long.parseLong(continuationToken);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+            }
         }
+        List<Message> messages = new ArrayList<>();
+        while (true) {
+            // One extra to know whether there is another page
+            int wanted = limit + 1 - messages.size();
+            long[] ids = textIndex.search(query, after, wanted);
+            for (long id : ids) {
+                Entry entry = findLiveById(sentMessages, sentById, id);
+                if (entry == null) {
+                    entry = findLiveById(storedMessages, storedById, id);
+                }
+                if (entry == null) {
+                    // Deleted since the index was read
+                    after = id;
+                    continue;
+                }
+                if (messages.size() == limit) {
+                    return new MessagePage(messages, Long.toString(after));
+                }
+                touch(entry.message);
+                messages.add(entry.message);
+                after = id;
+            }
+            if (ids.length < wanted) {
+                return new MessagePage(messages, null);
+            }
+        }
+    }
 
-        return sb.toString();
+    // One page of a recipient's messages by position
+    public MessagePage findByRecipient(String recipient, int offset, int limit) {
+        return recipients.page(recipient, offset, limit);
+    }
+
+    // The page after continuationToken (null for the first page); stable across deletes
+    public MessagePage findByRecipient(String recipient, String continuationToken, int limit) {
+        return recipients.page(recipient, continuationToken, limit);
+    }
+
+    // Sent and stored messages to recipient created in [fromMillis, toMillis), oldest first
+    public List<Message> findByRecipientBetween(String recipient, long fromMillis, long toMillis, int limit) {
+        return timelines.range(recipient, fromMillis, toMillis, limit);
+    }
+
+    // The count most recently created sent or stored messages to recipient, newest first
+    public List<Message> latestForRecipient(String recipient, int count) {
+        return timelines.latest(recipient, count);
+    }
+
+    public int countByRecipient(String recipient) {
+        return recipients.count(recipient);
+    }
+
+    private static void appendRecipientEntry(Appendable out, Message msg) throws IOException {
+        out.append("Message: ").append(msg.getMessageText()).append("\n")
+                .append("Message ID: ").append(msg.getMessageID()).append("\n")
+                .append("---\n");
     }
 
     // e) Delete by Message Hash
     public String deleteByMessageHash(String hash) {
-        // Search in sent messages
-        Iterator<Message> sentIterator = sentMessages.iterator();
-        while (sentIterator.hasNext()) {
-            Message msg = sentIterator.next();
-            if (msg.getMessageHash().equals(hash)) {
-                String messageText = msg.getMessageText();
-                sentIterator.remove();
-                messageSenders.remove(msg);
-                return "Message \"" + messageText + "\" successfully deleted.";
+        // Search in sent messages, then stored; retry if another thread deletes the match first
+        MessageQuery byHash = MessageQuery.hash(hash);
+        Message msg;
+        while ((msg = first(byHash.and(SENT))) != null) {
+            Entry entry = sentMessages.live.get(msg);
+            if (entry != null && remove(entry)) {
+                if (stateLog != null) {
+                    logChange(JournalRecord.delete(msg.getMessageID(), JournalRecord.Op.SEND, System.currentTimeMillis()))
+                            .exceptionally(this::logFailed);
+                }
+                return "Message \"" + msg.getMessageText() + "\" successfully deleted.";
             }
         }
 
-        // Search in stored messages
-        Iterator<Message> storedIterator = storedMessages.iterator();
-        while (storedIterator.hasNext()) {
-            Message msg = storedIterator.next();
-            if (msg.getMessageHash().equals(hash)) {
-                String messageText = msg.getMessageText();
-                storedIterator.remove();
-                removeFromJSON(msg);
-                return "Message \"" + messageText + "\" successfully deleted.";
+        while ((msg = first(byHash.and(STORED))) != null) {
+            Entry entry = storedMessages.live.get(msg);
+            if (entry != null && remove(entry)) {
+                removeFromJournal(msg);
+                return "Message \"" + msg.getMessageText() + "\" successfully deleted.";
             }
         }
 
         return "Message hash not found.";
     }
 
-    // Remove message from JSON file
-    private void removeFromJSON(Message messageToRemove) {
-        try {
-            File file = new File("messages.json");
-            if (file.exists()) {
-                String content = new String(Files.readAllBytes(Paths.get("messages.json")));
-                JSONArray messagesArray = new JSONArray(content);
-                JSONArray newArray = new JSONArray();
-
-                for (int i = 0; i < messagesArray.length(); i++) {
-                    JSONObject msgJson = messagesArray.getJSONObject(i);
-                    if (!msgJson.getString("messageID").equals(messageToRemove.getMessageID())) {
-                        newArray.put(msgJson);
-                    }
-                }
-
-                try (FileWriter writer = new FileWriter("messages.json")) {
-                    writer.write(newArray.toString(4));
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error removing message from JSON: " + e.getMessage());
+    // Remove message from the journal by writing a tombstone for it
+    private void removeFromJournal(Message messageToRemove) {
+        if (stateLog != null) {
+            logChange(JournalRecord.delete(messageToRemove.getMessageID(), JournalRecord.Op.STORE,
+                    System.currentTimeMillis()))
+                    .exceptionally(this::logFailed);
+            return;
         }
+        journal.delete(messageToRemove.getMessageID()).exceptionally(e -> {
+            System.err.println("Error removing message from journal: " + e.getMessage());
+            return null;
+        });
     }
 
     // f) Print a Sent Report
     public String printSentReport() {
-        if (sentMessages.isEmpty()) {
-            return "No sent messages yet.";
+        StringWriter out = new StringWriter();
+        try {
+            writeSentReport(new ReportWriter(out, ReportWriter.Format.TEXT));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return out.toString();
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for (Message msg : sentMessages) {
-            sb.append("Message Hash: ").append(msg.getMessageHash()).append("\n")
-                    .append("Recipient: ").append(msg.getRecipient()).append("\n")
-                    .append("Message: ").append(msg.getMessageText()).append("\n")
-                    .append("---\n");
+    // Streams the sent report row by row; returns the number of rows
+    public int writeSentReport(ReportWriter out) throws IOException {
+        out.begin("Message Hash", "Recipient", "Message");
+        try (QueryResult sent = query(SENT)) {
+            while (sent.hasNext()) {
+                Message msg = sent.next();
+                out.row(msg.getMessageHash(), msg.getRecipient(), msg.getMessageText());
+            }
         }
-        return sb.toString();
+        return out.finish("No sent messages yet.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package simpleloginsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2-HMAC-SHA256 password hashes, stored as
+//   pbkdf2-sha256$<iterations>$<salt, base64>$<hash, base64>
+// The iteration count is the work factor. calibrate() picks it so one hash takes about a
+// target time on this machine; hashes keep the count they were made with, so raising
+// it later does not lock anyone out (see needsUpgrade). Comparisons are constant-time.
+public class PasswordHasher {
+    public static final String PREFIX = "pbkdf2-sha256$";
+    public static final int MIN_ITERATIONS = 50_000;
+    public static final long DEFAULT_TARGET_MILLIS = 200;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int PROBE_ITERATIONS = 10_000;
+
+    private static volatile PasswordHasher defaultHasher;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be at least 1");
+        }
+        this.iterations = iterations;
+    }
+
+    // A hasher whose hashes take about targetMillis here, but never fewer than MIN_ITERATIONS
+    public static PasswordHasher calibrate(long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        long best = Long.MAX_VALUE;
+        // The first runs include warm-up, so keep the fastest
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            derive("calibration", salt, PROBE_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long iterations = PROBE_ITERATIONS * (targetMillis * 1_000_000L) / Math.max(1, best);
+        iterations = Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, iterations / 1000 * 1000));
+        return new PasswordHasher((int) iterations);
+    }
+
+    // Shared hasher calibrated to DEFAULT_TARGET_MILLIS on first use
+    public static PasswordHasher getDefault() {
+        PasswordHasher hasher = defaultHasher;
+        if (hasher == null) {
+            synchronized (PasswordHasher.class) {
+                hasher = defaultHasher;
+                if (hasher == null) {
+                    hasher = defaultHasher = calibrate(DEFAULT_TARGET_MILLIS);
+                }
+            }
+        }
+        return hasher;
+    }
+
+    public int getIterations() { return iterations; }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    // Checks password against a stored hash, or against stored plain text for
+    // credentials saved before hashing was introduced
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHash(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return storedIterations > 0
+                    && MessageDigest.isEqual(derive(password, salt, storedIterations), expected);
+        } catch (IllegalArgumentException e) {
+            // Not a hash this class wrote
+            return false;
+        }
+    }
+
+    public static boolean isHash(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    // Plain text, or hashed with less work than this hasher does: rehash at the next login
+    public boolean needsUpgrade(String stored) {
+        if (!isHash(stored)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Java platforms are required to provide PBKDF2WithHmacSHA256
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
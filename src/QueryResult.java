@@ -0,0 +1,80 @@
+package simpleloginsystem;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Lazily produced matches of a MessageQuery. Holds a read snapshot of the store open
+// until it is exhausted or closed, so use it in try-with-resources when stopping early.
+// While the snapshot is open, entries deleted after it cannot be reclaimed; a result that
+// is dropped without closing releases it only once it has been garbage collected.
+public final class QueryResult implements Iterator<Message>, AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Iterator<Message> matches;
+    private final Cleaner.Cleanable snapshot;
+    private final String plan;
+    private boolean closed;
+
+    QueryResult(Iterator<Message> matches, AutoCloseable snapshot, String plan) {
+        this.matches = matches;
+        // The action must not reach this result, or it would never become unreachable
+        this.snapshot = CLEANER.register(this, () -> {
+            try {
+                snapshot.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        this.plan = plan;
+    }
+
+    // How the store is finding the matches, e.g. "sent: id index; stored: id index"
+    public String getPlan() { return plan; }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (matches.hasNext()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public Message next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return matches.next();
+    }
+
+    // The next match, or null when there are no more
+    public Message first() {
+        return hasNext() ? next() : null;
+    }
+
+    // The remaining matches, up to limit
+    public List<Message> toList(int limit) {
+        List<Message> messages = new ArrayList<>();
+        while (messages.size() < limit && hasNext()) {
+            messages.add(next());
+        }
+        return messages;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Runs the close at most once, whether from here or from the cleaner
+        snapshot.clean();
+    }
+}
@@ -1,5 +1,7 @@
 package simpleloginsystem;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.Scanner;
 import javax.swing.JOptionPane;
 
@@ -15,6 +17,7 @@ public class QuickChatApp {
         scanner = new Scanner(System.in);
         authSystem = new Login();
         messageStore = new MessageStore();
+        System.out.println(messageStore.getLoadStats());
 
         // Show welcome message using JOptionPane
         JOptionPane.showMessageDialog(null, "Welcome to QuickChat");
@@ -56,11 +59,12 @@ public class QuickChatApp {
         }
 
         // Show total messages sent
-        System.out.println("\nTotal messages sent: " + messageStore.getSentMessages().size());
+        System.out.println("\nTotal messages sent: " + messageStore.getSentCount());
 
         // Part 3 Menu
         showPart3Menu();
 
+        messageStore.close();
         scanner.close();
     }
 
@@ -70,7 +74,7 @@ public class QuickChatApp {
         String recipient = scanner.nextLine().trim();
 
         // Validate recipient format - must start with + and have exactly 10 digits after
-        if (!recipient.matches("^\\+\\d{10}$")) {
+        if (!ValidationEngine.checkRecipient(recipient).isValid()) {
             System.out.println("Cell phone number is incorrectly formatted or does not contain an international code...");
             return;
         }
@@ -80,8 +84,8 @@ public class QuickChatApp {
         String messageText = scanner.nextLine().trim();
 
         // Validate message length
-        if (messageText.length() > 250) {
-            int excess = messageText.length() - 250;
+        if (!ValidationEngine.checkMessage(messageText).isValid()) {
+            int excess = messageText.length() - ValidationEngine.MAX_MESSAGE_LENGTH;
             System.out.println("Message exceeds 250 characters by " + excess + ", please reduce size.");
             return;
         }
@@ -132,8 +136,10 @@ public class QuickChatApp {
                 break;
 
             case 3: // Store
-                message.storeMessage();
-                messageStore.addStoredMessage(message);
+                messageStore.storeMessage(message).exceptionally(e -> {
+                    System.err.println("Error storing message: " + e.getMessage());
+                    return null;
+                });
                 System.out.println("Message successfully stored.");
                 messagesProcessed++;
                 break;
@@ -154,6 +160,7 @@ public class QuickChatApp {
             System.out.println("d) Find all messages for a Recipient");
             System.out.println("e) Delete by Message Hash");
             System.out.println("f) Print a Sent Report");
+            System.out.println("g) Search message text");
             System.out.println("x) Exit");
             System.out.print("Choose an option: ");
 
@@ -178,6 +185,9 @@ public class QuickChatApp {
                 case "f":
                     printSentReport();
                     break;
+                case "g":
+                    searchMessageText();
+                    break;
                 case "x":
                     running = false;
                     break;
@@ -188,8 +198,14 @@ public class QuickChatApp {
     }
 
     private static void listSendersAndRecipients() {
-        String result = messageStore.listSendersAndRecipients();
-        System.out.println("\n" + result);
+        System.out.println();
+        // Streamed straight to the console rather than built up as one string
+        try {
+            messageStore.writeSendersAndRecipients(new ReportWriter(new OutputStreamWriter(System.out), ReportWriter.Format.TEXT));
+        } catch (IOException e) {
+            System.err.println("Error writing report: " + e.getMessage());
+        }
+        System.out.println();
     }
 
     private static void showLongestMessage() {
@@ -218,8 +234,33 @@ public class QuickChatApp {
         System.out.println("\n" + result);
     }
 
+    private static void searchMessageText() {
+        System.out.print("Enter words to search for (e.g., dinner OR lunch, cak*): ");
+        String query = scanner.nextLine().trim();
+        MessagePage page = messageStore.searchText(query, null, 20);
+        System.out.println();
+        if (page.getMessages().isEmpty()) {
+            System.out.println("No matching messages.");
+        }
+        for (Message message : page.getMessages()) {
+            System.out.println("Message ID: " + message.getMessageID());
+            System.out.println("Recipient: " + message.getRecipient());
+            System.out.println("Message: " + message.getMessageText());
+            System.out.println("---");
+        }
+        if (page.hasMore()) {
+            System.out.println("(showing the first 20 matches)");
+        }
+    }
+
     private static void printSentReport() {
-        String result = messageStore.printSentReport();
-        System.out.println("\n" + result);
+        System.out.println();
+        // Streamed straight to the console rather than built up as one string
+        try {
+            messageStore.writeSentReport(new ReportWriter(new OutputStreamWriter(System.out), ReportWriter.Format.TEXT));
+        } catch (IOException e) {
+            System.err.println("Error writing report: " + e.getMessage());
+        }
+        System.out.println();
     }
 }
\ No newline at end of file
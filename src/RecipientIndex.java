@@ -0,0 +1,308 @@
+package simpleloginsystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-recipient posting lists, one for sent and one for stored messages.
+// Entries carry the store's sequence number, so a continuation token stays valid
+// when earlier messages are deleted between pages.
+// Safe for concurrent use: each recipient's lists have their own lock.
+public class RecipientIndex {
+    public static final int SENT = 0;
+    public static final int STORED = 1;
+
+    private static final int FOREACH_PAGE = 256;
+
+    private final ConcurrentHashMap<String, PostingList[]> postings = new ConcurrentHashMap<>();
+
+    public void add(int section, Message message, long seq) {
+        postings.compute(message.getRecipient(), (recipient, lists) -> {
+            if (lists == null) {
+                lists = new PostingList[] {new PostingList(), new PostingList()};
+            }
+            synchronized (lists) {
+                lists[section].add(seq, message);
+            }
+            return lists;
+        });
+    }
+
+    // seq is the one the message was added with
+    public void remove(int section, Message message, long seq) {
+        // compute() keeps an add for the same recipient from racing the empty-list cleanup
+        postings.computeIfPresent(message.getRecipient(), (recipient, lists) -> {
+            synchronized (lists) {
+                lists[section].remove(seq, message);
+                return lists[SENT].size == 0 && lists[STORED].size == 0 ? null : lists;
+            }
+        });
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    public int count(String recipient) {
+        PostingList[] lists = postings.get(recipient);
+        if (lists == null) {
+            return 0;
+        }
+        synchronized (lists) {
+            return lists[SENT].size + lists[STORED].size;
+        }
+    }
+
+    // Up to limit messages starting at offset; sent messages come before stored ones
+    public MessagePage page(String recipient, int offset, int limit) {
+        checkLimit(limit);
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        PostingList[] lists = postings.get(recipient);
+        if (lists == null) {
+            return MessagePage.EMPTY;
+        }
+        synchronized (lists) {
+            int section = SENT;
+            int position = offset;
+            if (position >= lists[SENT].size) {
+                position -= lists[SENT].size;
+                section = STORED;
+            }
+            return collect(lists, section, lists[section].slotOf(position), limit);
+        }
+    }
+
+    // Next page after a token from a previous page (null starts from the beginning)
+    public MessagePage page(String recipient, String continuationToken, int limit) {
+        checkLimit(limit);
+        PostingList[] lists = postings.get(recipient);
+        if (lists == null) {
+            return MessagePage.EMPTY;
+        }
+        if (continuationToken == null) {
+            synchronized (lists) {
+                return collect(lists, SENT, 0, limit);
+            }
+        }
+        int separator = continuationToken.indexOf('-');
+        int section;
+        long lastSeq;
+        try {
+            section = Integer.parseInt(continuationToken.substring(0, separator));
+            lastSeq = Long.parseLong(continuationToken.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+        }
+        if (section != SENT && section != STORED) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+        }
+        synchronized (lists) {
+            return collect(lists, section, lists[section].positionAfter(lastSeq), limit);
+        }
+    }
+
+    // Visit every message for the recipient in result order. Works a page at a time,
+    // so the visitor (often doing I/O) never runs under the recipient's lock.
+    public void forEach(String recipient, MessageVisitor visitor) throws IOException {
+        MessagePage page = page(recipient, (String) null, FOREACH_PAGE);
+        while (true) {
+            for (Message message : page.getMessages()) {
+                visitor.visit(message);
+            }
+            if (!page.hasMore()) {
+                return;
+            }
+            page = page(recipient, page.getContinuationToken(), FOREACH_PAGE);
+        }
+    }
+
+    // Lazily walks one of the recipient's lists (SENT or STORED) in sequence order, a page at
+    // a time under the lock. Continues after the last seen entry, so deletes do not skip any.
+    public Iterator<Message> iterator(String recipient, int section) {
+        return new Iterator<Message>() {
+            private final List<Message> page = new ArrayList<>();
+            private int position;
+            private long lastSeq = -1;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (position == page.size() && !done) {
+                    fill();
+                }
+                return position < page.size();
+            }
+
+            @Override
+            public Message next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(position++);
+            }
+
+            private void fill() {
+                page.clear();
+                position = 0;
+                PostingList[] lists = postings.get(recipient);
+                if (lists == null) {
+                    done = true;
+                    return;
+                }
+                synchronized (lists) {
+                    PostingList list = lists[section];
+                    int slot = list.positionAfter(lastSeq);
+                    while (slot < list.length && page.size() < FOREACH_PAGE) {
+                        if (list.messages[slot] != null) {
+                            page.add(list.messages[slot]);
+                        }
+                        lastSeq = list.seqs[slot++];
+                    }
+                    done = slot == list.length;
+                }
+            }
+        };
+    }
+
+    public interface MessageVisitor {
+        void visit(Message message) throws IOException;
+    }
+
+    // position is a slot in the section's list
+    private static MessagePage collect(PostingList[] lists, int section, int position, int limit) {
+        List<Message> messages = new ArrayList<>(Math.min(limit, 64));
+        int lastSection = section;
+        long lastSeq = -1;
+        while (section <= STORED && messages.size() < limit) {
+            PostingList list = lists[section];
+            while (position < list.length && messages.size() < limit) {
+                if (list.messages[position] != null) {
+                    lastSection = section;
+                    lastSeq = list.seqs[position];
+                    messages.add(list.messages[position]);
+                }
+                position++;
+            }
+            if (position >= list.length) {
+                section++;
+                position = 0;
+            }
+        }
+
+        boolean more = false;
+        for (int s = section; s <= STORED && !more; s++) {
+            more = lists[s].hasLiveFrom(position);
+            position = 0;
+        }
+        return new MessagePage(messages, more ? lastSection + "-" + lastSeq : null);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be at least 1");
+        }
+    }
+
+    // Sequence numbers in ascending order alongside their messages. A removed entry stays
+    // as a dead slot (null message) until dead slots outnumber live ones, when the list is
+    // compacted; removal is a binary search plus amortised constant work.
+    private static class PostingList {
+        long[] seqs = new long[4];
+        Message[] messages = new Message[4];
+        // Slots in use, dead ones included
+        int length;
+        // Live entries
+        int size;
+
+        // Usually an append; concurrent adds can arrive slightly out of sequence order
+        void add(long seq, Message message) {
+            if (length == seqs.length) {
+                if (length - size >= size) {
+                    compact();
+                } else {
+                    seqs = Arrays.copyOf(seqs, length * 2);
+                    messages = Arrays.copyOf(messages, length * 2);
+                }
+            }
+            int position = length;
+            while (position > 0 && seqs[position - 1] > seq) {
+                position--;
+            }
+            System.arraycopy(seqs, position, seqs, position + 1, length - position);
+            System.arraycopy(messages, position, messages, position + 1, length - position);
+            seqs[position] = seq;
+            messages[position] = message;
+            length++;
+            size++;
+        }
+
+        void remove(long seq, Message message) {
+            for (int i = positionAfter(seq - 1); i < length && seqs[i] == seq; i++) {
+                if (messages[i] == message) {
+                    messages[i] = null;
+                    size--;
+                    if (length - size > size) {
+                        compact();
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void compact() {
+            int live = 0;
+            for (int i = 0; i < length; i++) {
+                if (messages[i] != null) {
+                    seqs[live] = seqs[i];
+                    messages[live++] = messages[i];
+                }
+            }
+            Arrays.fill(messages, live, length, null);
+            length = live;
+        }
+
+        // Slot of the live entry at offset
+        int slotOf(int offset) {
+            if (size == length) {
+                return offset;
+            }
+            int slot = 0;
+            for (int live = 0; slot < length; slot++) {
+                if (messages[slot] != null && live++ == offset) {
+                    break;
+                }
+            }
+            return slot;
+        }
+
+        boolean hasLiveFrom(int slot) {
+            for (int i = slot; i < length; i++) {
+                if (messages[i] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Slot of the first entry with a sequence number greater than seq
+        int positionAfter(long seq) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (seqs[mid] <= seq) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
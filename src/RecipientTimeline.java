@@ -0,0 +1,147 @@
+package simpleloginsystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Each recipient's messages ordered by creation time, in a concurrent skip list.
+// Range and latest-N queries seek to the start in O(log n) and then walk only the results.
+// Equal timestamps are ordered by the store's sequence number, which also makes keys unique.
+// A message in several of the store's lists has an entry per list; range and latest return
+// it once.
+public class RecipientTimeline {
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Key, Message>> timelines = new ConcurrentHashMap<>();
+
+    private static final class Key implements Comparable<Key> {
+        final long createdAt;
+        final long seq;
+
+        Key(long createdAt, long seq) {
+            this.createdAt = createdAt;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byTime = Long.compare(createdAt, other.createdAt);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+
+    public void add(Message message, long seq) {
+        timelines.computeIfAbsent(message.getRecipient(), r -> new ConcurrentSkipListMap<>())
+                .put(new Key(message.getCreatedAt(), seq), message);
+    }
+
+    // seq must be the one the message was added with
+    public boolean remove(Message message, long seq) {
+        ConcurrentSkipListMap<Key, Message> timeline = timelines.get(message.getRecipient());
+        // Empty timelines are left in place; removing them could race with a concurrent add
+        return timeline != null && timeline.remove(new Key(message.getCreatedAt(), seq), message);
+    }
+
+    // Up to limit messages created in [fromMillis, toMillis), oldest first
+    public List<Message> range(String recipient, long fromMillis, long toMillis, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        List<Message> result = new ArrayList<>();
+        ConcurrentSkipListMap<Key, Message> timeline = timelines.get(recipient);
+        if (timeline == null || fromMillis >= toMillis) {
+            return result;
+        }
+        collectDistinct(timeline.subMap(new Key(fromMillis, Long.MIN_VALUE), new Key(toMillis, Long.MIN_VALUE))
+                .values(), limit, result);
+        return result;
+    }
+
+    // Lazily walks the messages created in [fromMillis, toMillis), oldest first. Weakly
+    // consistent: messages added or removed meanwhile may or may not be seen.
+    public Iterator<Message> iterator(String recipient, long fromMillis, long toMillis) {
+        ConcurrentSkipListMap<Key, Message> timeline = timelines.get(recipient);
+        if (timeline == null || fromMillis >= toMillis) {
+            return Collections.emptyIterator();
+        }
+        return timeline.subMap(new Key(fromMillis, Long.MIN_VALUE), new Key(toMillis, Long.MIN_VALUE))
+                .values().iterator();
+    }
+
+    // As above, but only the messages whose timeline entry passes filter, e.g. those added
+    // to one of the store's lists
+    public Iterator<Message> iterator(String recipient, long fromMillis, long toMillis, EntryFilter filter) {
+        ConcurrentSkipListMap<Key, Message> timeline = timelines.get(recipient);
+        if (timeline == null || fromMillis >= toMillis) {
+            return Collections.emptyIterator();
+        }
+        Iterator<Map.Entry<Key, Message>> entries = timeline
+                .subMap(new Key(fromMillis, Long.MIN_VALUE), new Key(toMillis, Long.MIN_VALUE)).entrySet().iterator();
+        return new Iterator<Message>() {
+            private Message next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && entries.hasNext()) {
+                    Map.Entry<Key, Message> entry = entries.next();
+                    if (filter.accept(entry.getValue(), entry.getKey().seq)) {
+                        next = entry.getValue();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Message next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Message result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    public interface EntryFilter {
+        // seq is the one the message was added with
+        boolean accept(Message message, long seq);
+    }
+
+    // The count most recent messages, newest first
+    public List<Message> latest(String recipient, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be at least 1");
+        }
+        List<Message> result = new ArrayList<>();
+        ConcurrentSkipListMap<Key, Message> timeline = timelines.get(recipient);
+        if (timeline == null) {
+            return result;
+        }
+        collectDistinct(timeline.descendingMap().values(), count, result);
+        return result;
+    }
+
+    // Copies of one message share its creation time, so only IDs within the current run of
+    // equal times need remembering
+    private static void collectDistinct(Iterable<Message> messages, int limit, List<Message> result) {
+        List<Long> sameTime = new ArrayList<>();
+        long time = 0;
+        for (Message message : messages) {
+            if (sameTime.isEmpty() || message.getCreatedAt() != time) {
+                sameTime.clear();
+                time = message.getCreatedAt();
+            } else if (sameTime.contains(message.getId())) {
+                continue;
+            }
+            sameTime.add(message.getId());
+            result.add(message);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package simpleloginsystem;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+// On-disk layout of journal records; MessageJournal only deals in encoded frames
+public interface RecordCodec {
+
+    interface FrameHandler {
+        void frame(byte[] frame, int length) throws IOException;
+    }
+
+    // Bytes written once at the start of a new file
+    byte[] header();
+
+    // Encode a record as one complete frame, ready to append
+    byte[] encode(JournalRecord record);
+
+    // Decode one frame; returns null for frames that carry no record (blank lines)
+    JournalRecord decode(byte[] frame, int length) throws IOException;
+
+    // Feed every complete frame in the first limit bytes; returns the offset after the last one
+    long forEachFrame(FileChannel in, long limit, FrameHandler handler) throws IOException;
+
+    // Make the end of an existing file safe to append to (e.g. after a torn write)
+    void prepareForAppend(FileChannel channel, Path path, long validLength) throws IOException;
+
+    // Pick the codec from the file name: .qcs files are binary segments, anything else JSON Lines
+    static RecordCodec forPath(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(BinarySegmentCodec.EXTENSION)) {
+            return new BinarySegmentCodec();
+        }
+        return new JsonLinesCodec();
+    }
+}
@@ -0,0 +1,275 @@
+package simpleloginsystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes report rows one at a time through a fixed-size buffer, so a report over
+// millions of messages never exists as one string. Output goes to a Writer, or is
+// UTF-8 encoded straight onto a channel (e.g. a FileChannel).
+//   TEXT:       "Label: value" lines, each row followed by "---" (the console format)
+//   CSV:        header row of labels, RFC 4180 quoting
+//   JSON_LINES: one object per row, keys are the labels in camelCase
+public class ReportWriter implements Closeable {
+    public enum Format { TEXT, CSV, JSON_LINES }
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Format format;
+    private final Writer writer;
+    private final WritableByteChannel channel;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+    private String[] labels = new String[0];
+    private String[] keys = new String[0];
+    private int rowCount;
+
+    public ReportWriter(Writer writer, Format format) {
+        this(writer, null, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ReportWriter(WritableByteChannel channel, Format format) {
+        this(null, channel, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    private ReportWriter(Writer writer, WritableByteChannel channel, Format format, int bufferSize) {
+        this.writer = writer;
+        this.channel = channel;
+        this.format = format;
+        this.chars = CharBuffer.allocate(bufferSize);
+        if (channel != null) {
+            // Unpaired surrogates become '?', as with String.getBytes
+            this.encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.bytes = ByteBuffer.allocate((int) (bufferSize * encoder.maxBytesPerChar()));
+        } else {
+            this.encoder = null;
+            this.bytes = null;
+        }
+    }
+
+    // Creates or truncates file; close the writer when done
+    public static ReportWriter toFile(Path file, Format format) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new ReportWriter(channel, format);
+    }
+
+    public Format getFormat() { return format; }
+
+    public int getRowCount() { return rowCount; }
+
+    // Starts a report with these columns
+    public void begin(String... columnLabels) throws IOException {
+        labels = columnLabels;
+        keys = new String[columnLabels.length];
+        for (int i = 0; i < columnLabels.length; i++) {
+            keys[i] = camelCase(columnLabels[i]);
+        }
+        rowCount = 0;
+        if (format == Format.CSV) {
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) {
+                    append(',');
+                }
+                appendCsv(labels[i]);
+            }
+            append("\r\n");
+        }
+    }
+
+    public void row(String... values) throws IOException {
+        if (values.length != labels.length) {
+            throw new IllegalArgumentException("Expected " + labels.length + " values but got " + values.length);
+        }
+        switch (format) {
+            case TEXT:
+                for (int i = 0; i < values.length; i++) {
+                    append(labels[i]);
+                    append(": ");
+                    append(String.valueOf(values[i]));
+                    append('\n');
+                }
+                append("---\n");
+                break;
+            case CSV:
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        append(',');
+                    }
+                    appendCsv(values[i]);
+                }
+                append("\r\n");
+                break;
+            default:
+                append('{');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        append(',');
+                    }
+                    appendJson(keys[i]);
+                    append(':');
+                    appendJson(values[i]);
+                }
+                append("}\n");
+                break;
+        }
+        rowCount++;
+    }
+
+    // Ends the report and pushes everything to the underlying writer or channel.
+    // A TEXT report with no rows prints emptyMessage instead, like the console reports.
+    public int finish(String emptyMessage) throws IOException {
+        if (rowCount == 0 && format == Format.TEXT && emptyMessage != null) {
+            append(emptyMessage);
+        }
+        drain(true);
+        if (writer != null) {
+            writer.flush();
+        }
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain(true);
+        if (writer != null) {
+            writer.close();
+        } else {
+            channel.close();
+        }
+    }
+
+    private void appendCsv(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            append(value);
+            return;
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        append('"');
+    }
+
+    private void appendJson(String value) throws IOException {
+        if (value == null) {
+            append("null");
+            return;
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': append("\\\""); break;
+                case '\\': append("\\\\"); break;
+                case '\n': append("\\n"); break;
+                case '\r': append("\\r"); break;
+                case '\t': append("\\t"); break;
+                case '\b': append("\\b"); break;
+                case '\f': append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        append("\\u00");
+                        append(Character.forDigit(c >> 4, 16));
+                        append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        append(c);
+                    }
+            }
+        }
+        append('"');
+    }
+
+    private void append(String value) throws IOException {
+        int offset = 0;
+        while (offset < value.length()) {
+            if (!chars.hasRemaining()) {
+                drain(false);
+            }
+            int count = Math.min(chars.remaining(), value.length() - offset);
+            chars.put(value, offset, offset + count);
+            offset += count;
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            drain(false);
+        }
+        chars.put(c);
+    }
+
+    // Empties the char buffer; a trailing half surrogate pair waits for the next drain unless last
+    private void drain(boolean last) throws IOException {
+        chars.flip();
+        if (writer != null) {
+            writer.write(chars.array(), chars.position(), chars.remaining());
+            chars.clear();
+            return;
+        }
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, last);
+            writeBytes();
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+        if (last) {
+            encoder.flush(bytes);
+            writeBytes();
+            encoder.reset();
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private static String camelCase(String label) {
+        StringBuilder key = new StringBuilder(label.length());
+        boolean upper = false;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c == ' ') {
+                upper = key.length() > 0;
+            } else {
+                key.append(upper ? Character.toUpperCase(c) : key.length() == 0 ? Character.toLowerCase(c) : c);
+                upper = false;
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,189 @@
+package simpleloginsystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Set membership with no false negatives and a bounded false-positive rate, for keys
+// such as usernames. It grows in stages: when a stage has taken its planned number of
+// keys, a stage twice the size with half the false-positive rate is added, so the
+// overall rate stays under twice the first stage's however many keys arrive.
+// Lookups are lock-free; adds from several threads are serialized.
+public class ScalableBloomFilter {
+    private static final int MAGIC = 0x51554246; // "QUBF"
+    private static final double FIRST_STAGE_RATE = 0.005;
+
+    private static final class Stage {
+        final AtomicLongArray bits;
+        final long bitCount;
+        final int hashes;
+        final long capacity;
+        final double rate;
+        long count;
+
+        Stage(long capacity, double rate) {
+            this.capacity = capacity;
+            this.rate = rate;
+            // Optimal size and hash count for capacity keys at this rate
+            long wanted = (long) Math.ceil(-capacity * Math.log(rate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((wanted + 63) / 64));
+            this.bitCount = bits.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        // Double hashing: position i is h1 + i * h2
+        boolean mightContain(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                long mask = 1L << bit;
+                bits.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+            }
+        }
+    }
+
+    // Replaced (never modified in place) when a stage is added, so readers need no lock
+    private volatile Stage[] stages;
+
+    // Sized for expectedKeys before the first new stage is needed
+    public ScalableBloomFilter(long expectedKeys) {
+        if (expectedKeys < 1) {
+            throw new IllegalArgumentException("Expected keys must be at least 1");
+        }
+        stages = new Stage[] {new Stage(expectedKeys, FIRST_STAGE_RATE)};
+    }
+
+    private ScalableBloomFilter(Stage[] stages) {
+        this.stages = stages;
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(String key) {
+        long hash = hash(key);
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last.count >= last.capacity) {
+            last = new Stage(last.capacity * 2, last.rate / 2);
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = last;
+            stages = current;
+        }
+        last.add(hash);
+        last.count++;
+    }
+
+    // Keys added so far
+    public synchronized long getCount() {
+        long count = 0;
+        for (Stage stage : stages) {
+            count += stage.count;
+        }
+        return count;
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    public long getSizeBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += stage.bitCount / 8;
+        }
+        return bytes;
+    }
+
+    // The false-positive rate the stages were planned for, if each is full
+    public double getDesignRate() {
+        double pass = 1;
+        for (Stage stage : stages) {
+            pass *= 1 - stage.rate;
+        }
+        return 1 - pass;
+    }
+
+    // stamp identifies what the filter was built from, e.g. the length of the file of keys
+    public synchronized void save(Path file, long stamp) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(stamp);
+            out.writeInt(stages.length);
+            for (Stage stage : stages) {
+                out.writeLong(stage.capacity);
+                out.writeDouble(stage.rate);
+                out.writeLong(stage.count);
+                for (int i = 0; i < stage.bits.length(); i++) {
+                    out.writeLong(stage.bits.get(i));
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // A saved filter, or null if the file is missing, unreadable, or was saved with another stamp
+    public static ScalableBloomFilter load(Path file, long expectedStamp) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readLong() != expectedStamp) {
+                return null;
+            }
+            Stage[] stages = new Stage[in.readInt()];
+            for (int s = 0; s < stages.length; s++) {
+                stages[s] = new Stage(in.readLong(), in.readDouble());
+                stages[s].count = in.readLong();
+                for (int i = 0; i < stages[s].bits.length(); i++) {
+                    stages[s].bits.set(i, in.readLong());
+                }
+            }
+            return stages.length == 0 ? null : new ScalableBloomFilter(stages);
+        } catch (IOException e) {
+            System.err.println("Error loading filter, rebuilding it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // FNV-1a over the chars, then a 64-bit finalizer so both halves are well mixed
+    private static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
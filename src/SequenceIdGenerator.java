@@ -0,0 +1,52 @@
+package simpleloginsystem;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+// IDs from a shared counter, leased to threads in blocks of 1024. Counter positions are
+// spread over the 10-digit range by multiplying with a prime modulo the range size, a
+// bijection, so IDs do not look sequential and their leading digits vary.
+// With a mark file the counter survives restarts (see BlockLeasingIdGenerator).
+public class SequenceIdGenerator extends BlockLeasingIdGenerator {
+    private static final long RANGE = MAX_ID - MIN_ID + 1;
+    // Prime, so coprime with RANGE; RANGE * MULTIPLIER still fits in a long
+    private static final long MULTIPLIER = 1_000_000_007L;
+    private static final int BLOCK_SIZE = 1024;
+
+    private final AtomicLong nextBlock = new AtomicLong();
+
+    // Counter kept in memory only; restarts at 0
+    public SequenceIdGenerator() {
+    }
+
+    public SequenceIdGenerator(Path markFile) {
+        addMarkFile(markFile);
+    }
+
+    protected long leaseBlock() {
+        long start = nextBlock.getAndAdd(BLOCK_SIZE);
+        if (start >= RANGE) {
+            throw new IllegalStateException("Message ID space exhausted");
+        }
+        return start;
+    }
+
+    protected void skipTo(long position) {
+        nextBlock.accumulateAndGet(position, Math::max);
+    }
+
+    protected long nextPosition() {
+        return nextBlock.get();
+    }
+
+    protected int blockSize() {
+        return BLOCK_SIZE;
+    }
+
+    protected long toId(long position) {
+        if (position >= RANGE) {
+            throw new IllegalStateException("Message ID space exhausted");
+        }
+        return MIN_ID + (position * MULTIPLIER) % RANGE;
+    }
+}
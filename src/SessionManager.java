@@ -0,0 +1,165 @@
+package simpleloginsystem;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Sessions for authenticated users. Opening one returns an opaque random token; later
+// requests present the token and are checked with a single map lookup instead of
+// verifying the password again. A session ends when it has been idle for idleMillis,
+// or absoluteMillis after it was opened, whichever comes first.
+// Expiry is checked on every lookup. A timer wheel, advanced by one shared thread,
+// removes sessions nobody asks about again.
+public class SessionManager implements AutoCloseable {
+    public static final long DEFAULT_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    public static final long DEFAULT_ABSOLUTE_MILLIS = TimeUnit.HOURS.toMillis(12);
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_BUCKETS = 1024;
+    private static final int TOKEN_BYTES = 32;
+
+    private static final class Session {
+        final String token;
+        final User user;
+        final long absoluteDeadline;
+        volatile long lastAccess;
+
+        Session(String token, User user, long now, long absoluteMillis) {
+            this.token = token;
+            this.user = user;
+            this.absoluteDeadline = now + absoluteMillis;
+            this.lastAccess = now;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final TimerWheel<Session> wheel;
+    private final long idleMillis;
+    private final long absoluteMillis;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService ticker;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public SessionManager() {
+        this(DEFAULT_IDLE_MILLIS, DEFAULT_ABSOLUTE_MILLIS);
+    }
+
+    // Expired sessions are removed in the background once a second
+    public SessionManager(long idleMillis, long absoluteMillis) {
+        this(idleMillis, absoluteMillis, System::currentTimeMillis, true);
+    }
+
+    // Time comes from clock and nothing runs in the background: call expire() to remove sessions
+    public SessionManager(long idleMillis, long absoluteMillis, LongSupplier clock) {
+        this(idleMillis, absoluteMillis, clock, false);
+    }
+
+    private SessionManager(long idleMillis, long absoluteMillis, LongSupplier clock, boolean background) {
+        if (idleMillis < 1 || absoluteMillis < 1) {
+            throw new IllegalArgumentException("Session timeouts must be at least 1 ms");
+        }
+        this.idleMillis = idleMillis;
+        this.absoluteMillis = absoluteMillis;
+        this.clock = clock;
+        this.wheel = new TimerWheel<>(TICK_MILLIS, WHEEL_BUCKETS, clock.getAsLong());
+        if (background) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "session-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::expire, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    // Starts a session for an authenticated user and returns its token
+    public String open(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = clock.getAsLong();
+        Session session = new Session(token, user, now, absoluteMillis);
+        sessions.put(token, session);
+        wheel.schedule(session, deadline(session));
+        return token;
+    }
+
+    // The session's user, or null if the token is unknown or has expired. Counts as activity.
+    public User validate(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            misses.increment();
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now >= deadline(session)) {
+            if (sessions.remove(token, session)) {
+                expired.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        session.lastAccess = now;
+        hits.increment();
+        return session.user;
+    }
+
+    // Ends the session; false if there was none
+    public boolean end(String token) {
+        return sessions.remove(token) != null;
+    }
+
+    // Removes sessions whose time is up; returns how many
+    public int expire() {
+        int[] removed = {0};
+        wheel.advance(clock.getAsLong(), (session, now) -> {
+            if (sessions.get(session.token) != session) {
+                // Closed, or already expired by a lookup
+                return -1;
+            }
+            long deadline = deadline(session);
+            if (now < deadline) {
+                return deadline;
+            }
+            if (sessions.remove(session.token, session)) {
+                expired.increment();
+                removed[0]++;
+            }
+            return -1;
+        });
+        return removed[0];
+    }
+
+    private long deadline(Session session) {
+        return Math.min(session.lastAccess + idleMillis, session.absoluteDeadline);
+    }
+
+    // Metrics
+    public int getLiveSessions() { return sessions.size(); }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getExpired() { return expired.sum(); }
+
+    public double getHitRate() {
+        long hit = hits.sum();
+        long lookups = hit + misses.sum();
+        return lookups == 0 ? 0 : (double) hit / lookups;
+    }
+
+    // Stops the background expiry thread, if any
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
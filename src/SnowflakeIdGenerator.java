@@ -0,0 +1,78 @@
+package simpleloginsystem;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style IDs squeezed into 10 digits: a 33-bit value added to MIN_ID, laid out as
+// 24 bits of 64-second ticks since 2025-01-01 (about 34 years), then worker bits, then
+// sequence bits. Coarse ticks leave 9 bits per tick for worker and sequence, e.g. 512 IDs a
+// tick with no worker bits. 33 bits only allow about 8 IDs a second over the whole span, so
+// bursts borrow upcoming ticks; with a mark file the borrowed ticks are saved before use, so
+// a restart never goes back to them. Without one, IDs are unique within a run only.
+// Threads lease one tick's worth of sequence numbers at a time.
+public class SnowflakeIdGenerator extends BlockLeasingIdGenerator {
+    private static final long EPOCH_MILLIS = 1_735_689_600_000L; // 2025-01-01T00:00:00Z
+    private static final long TICK_MILLIS = 64_000;
+    private static final int TIME_BITS = 24;
+    private static final int VALUE_BITS = 33;
+
+    private final int workerId;
+    private final int sequenceBits;
+    private final int workerShift;
+    // Last leased (ticks << sequenceBits), so the clock never runs backwards
+    private final AtomicLong lastLease = new AtomicLong(-1);
+
+    public SnowflakeIdGenerator(int workerId, int workerBits) {
+        this(workerId, workerBits, null);
+    }
+
+    // Continues after the ticks used by earlier runs, as recorded in markFile (may be null)
+    public SnowflakeIdGenerator(int workerId, int workerBits, Path markFile) {
+        if (workerBits < 0 || workerBits > VALUE_BITS - TIME_BITS - 1) {
+            throw new IllegalArgumentException("Worker bits must be between 0 and " + (VALUE_BITS - TIME_BITS - 1));
+        }
+        if (workerId < 0 || workerId >= (1 << workerBits)) {
+            throw new IllegalArgumentException("Worker ID does not fit in " + workerBits + " bits");
+        }
+        this.workerId = workerId;
+        this.sequenceBits = VALUE_BITS - TIME_BITS - workerBits;
+        this.workerShift = sequenceBits;
+        if (markFile != null) {
+            addMarkFile(markFile);
+        }
+    }
+
+    protected long leaseBlock() {
+        long now = Math.max(0, (System.currentTimeMillis() - EPOCH_MILLIS) / TICK_MILLIS) << sequenceBits;
+        while (true) {
+            long last = lastLease.get();
+            long next = Math.max(now, last + blockSize());
+            if ((next >>> sequenceBits) >= (1L << TIME_BITS)) {
+                throw new IllegalStateException("Message ID space exhausted");
+            }
+            if (lastLease.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    protected void skipTo(long position) {
+        lastLease.accumulateAndGet(position - blockSize(), Math::max);
+    }
+
+    protected long nextPosition() {
+        return lastLease.get() + blockSize();
+    }
+
+    protected int blockSize() {
+        return 1 << sequenceBits;
+    }
+
+    // Position is (ticks << sequenceBits) | sequence; the worker goes in between
+    protected long toId(long position) {
+        long ticks = position >>> sequenceBits;
+        long sequence = position & ((1L << sequenceBits) - 1);
+        long value = (ticks << (VALUE_BITS - TIME_BITS)) | ((long) workerId << workerShift) | sequence;
+        return MIN_ID + value;
+    }
+}
@@ -0,0 +1,49 @@
+package simpleloginsystem;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps repeated strings (recipients, senders) to small int codes so each message
+// stores 4 bytes instead of its own copy of the string. Codes are never reused.
+public class StringDictionary {
+    public static final int NONE = -1;
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    // Code for value, adding it on first use; NONE for null
+    public int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        return codes.computeIfAbsent(value, this::append);
+    }
+
+    public String decode(int code) {
+        if (code == NONE) {
+            return null;
+        }
+        // Anyone holding a code saw the volatile write that published its slot
+        return values[code];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized Integer append(String value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        String[] current = values;
+        current[size] = value;
+        // Re-publish so readers of the volatile array see the new slot
+        values = current;
+        return size++;
+    }
+}
@@ -0,0 +1,76 @@
+package simpleloginsystem;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+// MessageKeyIndex split into independently locked stripes, so threads working on
+// different keys do not contend. A key always lives in the same stripe, which keeps
+// the per-key insertion order of MessageKeyIndex.
+public class StripedKeyIndex {
+    private final MessageKeyIndex[] stripes;
+    private final int shift;
+
+    public StripedKeyIndex() {
+        this(defaultStripes());
+    }
+
+    public StripedKeyIndex(int stripeCount) {
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two");
+        }
+        stripes = new MessageKeyIndex[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new MessageKeyIndex();
+        }
+        shift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    // A few stripes per core, enough that writers rarely meet
+    public static int defaultStripes() {
+        int wanted = Runtime.getRuntime().availableProcessors() * 4;
+        return Math.min(64, Integer.highestOneBit(wanted - 1) << 1);
+    }
+
+    public void add(long key, Message message) {
+        MessageKeyIndex stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.add(key, message);
+        }
+    }
+
+    public boolean remove(long key, Message message) {
+        MessageKeyIndex stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.remove(key, message);
+        }
+    }
+
+    public Message find(long key, Predicate<Message> match) {
+        MessageKeyIndex stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.find(key, match);
+        }
+    }
+
+    public void findAll(long key, Predicate<Message> match, List<Message> out) {
+        MessageKeyIndex stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.findAll(key, match, out);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (MessageKeyIndex stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    // High bits of a Fibonacci hash, so stripes do not mirror the table slots inside them
+    private MessageKeyIndex stripe(long key) {
+        return shift == 64 ? stripes[0] : stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> shift)];
+    }
+}
@@ -0,0 +1,113 @@
+package simpleloginsystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// MessageLengthIndex split into independently locked stripes. Results are merged across
+// stripes, using the caller's order (e.g. insertion sequence) to break length ties.
+public class StripedLengthIndex {
+    private final MessageLengthIndex[] stripes;
+    private final ToLongFunction<Message> order;
+
+    public StripedLengthIndex(int stripeCount, ToLongFunction<Message> order) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Stripe count must be at least 1");
+        }
+        stripes = new MessageLengthIndex[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new MessageLengthIndex();
+        }
+        this.order = order;
+    }
+
+    // stripeKey picks the stripe and must be the same for add and remove
+    public void add(long stripeKey, Message message) {
+        MessageLengthIndex stripe = stripe(stripeKey);
+        synchronized (stripe) {
+            stripe.add(message);
+        }
+    }
+
+    public boolean remove(long stripeKey, Message message) {
+        MessageLengthIndex stripe = stripe(stripeKey);
+        synchronized (stripe) {
+            return stripe.remove(message);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (MessageLengthIndex stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public Message longest() {
+        List<Message> candidates = topK(1);
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    // Up to k messages, longest first, earliest first among equal lengths
+    public List<Message> topK(int k) {
+        List<Message> merged = new ArrayList<>();
+        for (MessageLengthIndex stripe : stripes) {
+            synchronized (stripe) {
+                merged.addAll(stripe.topK(k));
+            }
+        }
+        Comparator<Message> longestFirst = Comparator.comparingInt((Message m) -> m.getTextLength())
+                .reversed();
+        merged.sort(longestFirst.thenComparingLong(order));
+        return merged.size() > k ? new ArrayList<>(merged.subList(0, k)) : merged;
+    }
+
+    // Nearest-rank percentile across all stripes; -1 when empty
+    public int percentile(double percentile) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100]");
+        }
+        int size = size();
+        int maxLength = -1;
+        for (MessageLengthIndex stripe : stripes) {
+            synchronized (stripe) {
+                maxLength = Math.max(maxLength, stripe.maxLength());
+            }
+        }
+        if (size == 0 || maxLength < 0) {
+            return -1;
+        }
+
+        // Smallest length whose combined count reaches the rank
+        long rank = (long) Math.ceil(percentile / 100.0 * size);
+        int low = 0;
+        int high = maxLength;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (countAtMost(mid) >= rank) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private long countAtMost(int length) {
+        long count = 0;
+        for (MessageLengthIndex stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.countAtMost(length);
+            }
+        }
+        return count;
+    }
+
+    private MessageLengthIndex stripe(long stripeKey) {
+        return stripes[(int) Math.floorMod(stripeKey, (long) stripes.length)];
+    }
+}
@@ -0,0 +1,194 @@
+package simpleloginsystem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Off-heap storage for message text, UTF-8 encoded in direct ByteBuffer chunks.
+// Each text gets a slot rounded up to a 16-byte size class; freed slots go on a
+// free list for their class and are handed out again before the chunk grows.
+// Messages keep a small Slice (chunk/offset/length) and decode the text on access.
+// An arena can instead be backed by a file, with chunks memory-mapped from it: the
+// text then lives on disk and the OS pages it in when read.
+public class TextArena implements AutoCloseable {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    // Longer texts are left on the heap
+    public static final int MAX_TEXT_BYTES = 4096;
+    private static final int GRANULE = 16;
+
+    // Scratch space for decoding, so a read allocates only the resulting String
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_TEXT_BYTES]);
+
+    private final int chunkSize;
+    // Backing file, or null for direct buffers
+    private final FileChannel file;
+    // Replaced (never modified in place) when a chunk is added, so readers need no lock
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int chunkOffset;
+    // Free slot addresses per size class
+    private final long[][] freeSlots = new long[MAX_TEXT_BYTES / GRANULE + 1][];
+    private final int[] freeCounts = new int[MAX_TEXT_BYTES / GRANULE + 1];
+    private long usedBytes;
+    private long freeBytes;
+
+    public TextArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public TextArena(int chunkSize) {
+        if (chunkSize < MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Chunk size must be at least " + MAX_TEXT_BYTES + " bytes");
+        }
+        this.chunkSize = chunkSize;
+        this.file = null;
+    }
+
+    // Backed by file, which is created or truncated: its contents only matter while the arena is open
+    public TextArena(Path file, int chunkSize) {
+        if (chunkSize < MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Chunk size must be at least " + MAX_TEXT_BYTES + " bytes");
+        }
+        this.chunkSize = chunkSize;
+        try {
+            this.file = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A slot in the arena holding one text
+    public static final class Slice {
+        private final TextArena arena;
+        private final long address;
+        private final int byteLength;
+        private final int charLength;
+
+        private Slice(TextArena arena, long address, int byteLength, int charLength) {
+            this.arena = arena;
+            this.address = address;
+            this.byteLength = byteLength;
+            this.charLength = charLength;
+        }
+
+        public TextArena getArena() { return arena; }
+        public int getByteLength() { return byteLength; }
+        public int getCharLength() { return charLength; }
+
+        public String decode() {
+            return arena.load(this);
+        }
+    }
+
+    // Copies text into the arena; null if it is empty or too long to be worth a slot
+    public Slice store(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_TEXT_BYTES) {
+            return null;
+        }
+        long address = allocate(sizeClass(bytes.length));
+        // The slot is ours alone until the Slice is published, so no lock for the copy
+        chunks[chunkIndex(address)].put(chunkOffset(address), bytes);
+        return new Slice(this, address, bytes.length, text.length());
+    }
+
+    public String load(Slice slice) {
+        checkOwner(slice);
+        byte[] scratch = SCRATCH.get();
+        chunks[chunkIndex(slice.address)].get(chunkOffset(slice.address), scratch, 0, slice.byteLength);
+        return new String(scratch, 0, slice.byteLength, StandardCharsets.UTF_8);
+    }
+
+    // Returns the slot for reuse; the slice must not be read afterwards
+    public synchronized void free(Slice slice) {
+        checkOwner(slice);
+        int sizeClass = sizeClass(slice.byteLength);
+        long[] slots = freeSlots[sizeClass];
+        if (slots == null) {
+            slots = freeSlots[sizeClass] = new long[16];
+        } else if (freeCounts[sizeClass] == slots.length) {
+            slots = freeSlots[sizeClass] = Arrays.copyOf(slots, slots.length * 2);
+        }
+        slots[freeCounts[sizeClass]++] = slice.address;
+        int slotBytes = sizeClass * GRANULE;
+        usedBytes -= slotBytes;
+        freeBytes += slotBytes;
+    }
+
+    // Bytes in slots currently holding text
+    public synchronized long getUsedBytes() { return usedBytes; }
+
+    // Bytes in freed slots waiting to be reused
+    public synchronized long getFreeBytes() { return freeBytes; }
+
+    // Off-heap memory reserved so far
+    public long getReservedBytes() {
+        return (long) chunks.length * chunkSize;
+    }
+
+    private synchronized long allocate(int sizeClass) {
+        int slotBytes = sizeClass * GRANULE;
+        usedBytes += slotBytes;
+        if (freeCounts[sizeClass] > 0) {
+            freeBytes -= slotBytes;
+            return freeSlots[sizeClass][--freeCounts[sizeClass]];
+        }
+        ByteBuffer[] current = chunks;
+        if (current.length == 0 || chunkOffset + slotBytes > chunkSize) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = newChunk(current.length - 1);
+            chunks = current;
+            chunkOffset = 0;
+        }
+        long address = ((long) (current.length - 1) << 32) | chunkOffset;
+        chunkOffset += slotBytes;
+        return address;
+    }
+
+    private ByteBuffer newChunk(int index) {
+        if (file == null) {
+            return ByteBuffer.allocateDirect(chunkSize);
+        }
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, (long) index * chunkSize, chunkSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Closes the backing file; mapped chunks stay readable until they are garbage collected
+    @Override
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("Error closing text arena file: " + e.getMessage());
+        }
+    }
+
+    private void checkOwner(Slice slice) {
+        if (slice.arena != this) {
+            throw new IllegalArgumentException("Slice belongs to a different arena");
+        }
+    }
+
+    private static int sizeClass(int byteLength) {
+        return (byteLength + GRANULE - 1) / GRANULE;
+    }
+
+    private static int chunkIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int chunkOffset(long address) {
+        return (int) address;
+    }
+}
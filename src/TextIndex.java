@@ -0,0 +1,673 @@
+package simpleloginsystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index from words in message text to message IDs.
+// Text is split into runs of letters and digits, lower-cased (Locale.ROOT); each term keeps
+// the sorted IDs containing it. Queries:
+//   hello world        both terms (AND is implied)
+//   hello OR hi        either term; AND binds tighter than OR
+//   hel*               any term starting with "hel"
+// Matches come back in ascending ID order, a page at a time after a given ID.
+public class TextIndex {
+    public static final String EXTENSION = ".qti";
+    public static final String FILE_NAME = "text-index" + EXTENSION;
+    // Bump when the tokenizer or file layout changes, so old files are rebuilt
+    private static final int MAGIC = 0x51544931;
+
+    // Terms are spread over independently locked maps by hash, so adds and removes
+    // touching different terms run in parallel. A search read-locks only the stripes its
+    // terms are in, and may see a message that is being added in some terms but not yet others.
+    private final Stripe[] stripes = new Stripe[StripedKeyIndex.defaultStripes()];
+    // Shared by adds and removes; save, load and clear hold it alone so they see whole messages
+    private final ReentrantReadWriteLock documentLock = new ReentrantReadWriteLock();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder checksum = new LongAdder();
+
+    private static final class Stripe {
+        final TreeMap<String, Postings> terms = new TreeMap<>();
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    }
+
+    // Sorted IDs of the messages containing one term, in blocks of at most BLOCK_SIZE. IDs
+    // mostly arrive out of order, so an insert or removal must not shift the whole list; it
+    // finds its block by binary search and moves at most that block's IDs.
+    private static final class Postings {
+        static final int BLOCK_SIZE = 128;
+
+        // Every block but a lone first one holds at least one ID
+        long[][] blocks = {new long[2]};
+        int[] counts = new int[1];
+        int blockCount = 1;
+        int size;
+
+        // The block holding id, or the one it belongs in
+        int blockOf(long id) {
+            int low = 0;
+            int high = blockCount - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (blocks[mid][0] <= id) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        long last(int block) {
+            return blocks[block][counts[block] - 1];
+        }
+
+        void add(long id) {
+            int b = blockOf(id);
+            int index = Arrays.binarySearch(blocks[b], 0, counts[b], id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -(index + 1);
+            if (counts[b] == BLOCK_SIZE) {
+                if (insertAt == BLOCK_SIZE && b == blockCount - 1) {
+                    // A new largest ID: start a block rather than leave two half-full ones
+                    insertBlock(b + 1, new long[2], 0);
+                    b++;
+                    insertAt = 0;
+                } else {
+                    long[] upper = new long[BLOCK_SIZE];
+                    System.arraycopy(blocks[b], BLOCK_SIZE / 2, upper, 0, BLOCK_SIZE / 2);
+                    counts[b] = BLOCK_SIZE / 2;
+                    insertBlock(b + 1, upper, BLOCK_SIZE / 2);
+                    if (insertAt > BLOCK_SIZE / 2) {
+                        b++;
+                        insertAt -= BLOCK_SIZE / 2;
+                    }
+                }
+            }
+            long[] block = blocks[b];
+            int count = counts[b];
+            if (count == block.length) {
+                block = blocks[b] = Arrays.copyOf(block, Math.min(BLOCK_SIZE, count * 2));
+            }
+            System.arraycopy(block, insertAt, block, insertAt + 1, count - insertAt);
+            block[insertAt] = id;
+            counts[b]++;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int b = blockOf(id);
+            long[] block = blocks[b];
+            int index = Arrays.binarySearch(block, 0, counts[b], id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(block, index + 1, block, index, counts[b] - index - 1);
+            counts[b]--;
+            size--;
+            // Merge thin neighbours so removals cannot leave a long tail of near-empty blocks
+            if (b + 1 < blockCount && counts[b] + counts[b + 1] <= BLOCK_SIZE / 2) {
+                mergeWithNext(b);
+            } else if (b > 0 && counts[b - 1] + counts[b] <= BLOCK_SIZE / 2) {
+                mergeWithNext(b - 1);
+            } else if (counts[b] == 0 && blockCount > 1) {
+                removeBlock(b);
+            }
+            return true;
+        }
+
+        private void mergeWithNext(int b) {
+            int total = counts[b] + counts[b + 1];
+            if (blocks[b].length < total) {
+                blocks[b] = Arrays.copyOf(blocks[b], BLOCK_SIZE);
+            }
+            System.arraycopy(blocks[b + 1], 0, blocks[b], counts[b], counts[b + 1]);
+            counts[b] = total;
+            removeBlock(b + 1);
+        }
+
+        private void insertBlock(int at, long[] block, int count) {
+            if (blockCount == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blockCount * 2);
+                counts = Arrays.copyOf(counts, blockCount * 2);
+            }
+            System.arraycopy(blocks, at, blocks, at + 1, blockCount - at);
+            System.arraycopy(counts, at, counts, at + 1, blockCount - at);
+            blocks[at] = block;
+            counts[at] = count;
+            blockCount++;
+        }
+
+        private void removeBlock(int at) {
+            System.arraycopy(blocks, at + 1, blocks, at, blockCount - at - 1);
+            System.arraycopy(counts, at + 1, counts, at, blockCount - at - 1);
+            blockCount--;
+            blocks[blockCount] = null;
+        }
+    }
+
+    public TextIndex() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // The stripe count is a power of two
+    private int stripeIndex(String term) {
+        int h = term.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    // Distinct terms of text, in order of first appearance
+    public static Set<String> tokenize(CharSequence text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int c = Character.codePointAt(text, i);
+            if (!Character.isLetterOrDigit(c)) {
+                i += Character.charCount(c);
+                continue;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(c = Character.codePointAt(text, i))) {
+                i += Character.charCount(c);
+            }
+            tokens.add(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    public void add(long id, CharSequence text) {
+        Set<String> tokens = tokenize(text);
+        documentLock.readLock().lock();
+        try {
+            addPostings(id, tokens);
+        } finally {
+            documentLock.readLock().unlock();
+        }
+    }
+
+    // The first count IDs and texts, all tokenized before any lock is taken
+    public void addAll(long[] ids, CharSequence[] texts, int count) {
+        List<Set<String>> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(tokenize(texts[i]));
+        }
+        documentLock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                addPostings(ids[i], tokens.get(i));
+            }
+        } finally {
+            documentLock.readLock().unlock();
+        }
+    }
+
+    // Holds one stripe lock at a time
+    private void addPostings(long id, Set<String> tokens) {
+        for (String token : tokens) {
+            Stripe stripe = stripes[stripeIndex(token)];
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.terms.computeIfAbsent(token, t -> new Postings()).add(id);
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+        documents.increment();
+        checksum.add(mix(id));
+    }
+
+    // text must be the same text the message was added with
+    public void remove(long id, CharSequence text) {
+        Set<String> tokens = tokenize(text);
+        documentLock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                Stripe stripe = stripes[stripeIndex(token)];
+                stripe.lock.writeLock().lock();
+                try {
+                    Postings postings = stripe.terms.get(token);
+                    if (postings != null && postings.remove(id) && postings.size == 0) {
+                        stripe.terms.remove(token);
+                    }
+                } finally {
+                    stripe.lock.writeLock().unlock();
+                }
+            }
+            documents.decrement();
+            checksum.add(-mix(id));
+        } finally {
+            documentLock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lockAll();
+        try {
+            clearAll();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Excludes writers and searches alike; taken in the same order as searches take stripes
+    private void lockAll() {
+        documentLock.writeLock().lock();
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.writeLock().unlock();
+        }
+        documentLock.writeLock().unlock();
+    }
+
+    private void clearAll() {
+        for (Stripe stripe : stripes) {
+            stripe.terms.clear();
+        }
+        documents.reset();
+        checksum.reset();
+    }
+
+    public long size() {
+        return documents.sum();
+    }
+
+    // Order-independent fingerprint of the indexed IDs, to check a saved index still fits the store
+    public static long checksum(long count, long idSum) {
+        return count * 0x9E3779B97F4A7C15L ^ idSum;
+    }
+
+    public long checksum() {
+        documentLock.writeLock().lock();
+        try {
+            return checksum(documents.sum(), checksum.sum());
+        } finally {
+            documentLock.writeLock().unlock();
+        }
+    }
+
+    // The per-ID term of the checksum; callers sum it over the IDs they expect
+    public static long mix(long id) {
+        long z = id * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 31)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 29);
+    }
+
+    // Up to limit matching IDs greater than afterId, ascending
+    public long[] search(String query, long afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be at least 1");
+        }
+        List<List<String>> clauses = parse(query);
+        List<Lock> locks = readLockStripes(clauses);
+        try {
+            Cursor root = compile(clauses);
+            long[] found = new long[Math.min(limit, 1024)];
+            int count = 0;
+            long next = afterId == Long.MAX_VALUE ? Cursor.END : root.next(afterId + 1);
+            while (next != Cursor.END && count < limit) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, Math.min(limit, count * 2));
+                }
+                found[count++] = next;
+                next = next == Long.MAX_VALUE ? Cursor.END : root.next(next + 1);
+            }
+            return Arrays.copyOf(found, count);
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Read-locks the stripes holding the query's terms (all of them for a prefix) in index
+    // order. Writers hold at most one stripe at a time, so this cannot deadlock with them.
+    private List<Lock> readLockStripes(List<List<String>> clauses) {
+        boolean[] needed = new boolean[stripes.length];
+        for (List<String> clause : clauses) {
+            for (String term : clause) {
+                if (term.endsWith("*")) {
+                    Arrays.fill(needed, true);
+                } else {
+                    needed[stripeIndex(term)] = true;
+                }
+            }
+        }
+        List<Lock> locks = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (needed[i]) {
+                Lock lock = stripes[i].lock.readLock();
+                lock.lock();
+                locks.add(lock);
+            }
+        }
+        return locks;
+    }
+
+    // OR of AND-clauses; each term is lower-cased, prefix terms keep their trailing '*'
+    private static List<List<String>> parse(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.isEmpty() || word.equals("AND")) {
+                continue;
+            }
+            if (word.equals("OR")) {
+                if (!current.isEmpty()) {
+                    clauses.add(current);
+                    current = new ArrayList<>();
+                }
+                continue;
+            }
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = new ArrayList<>(tokenize(word));
+            for (int i = 0; i < tokens.size(); i++) {
+                // Only the last piece of "don't*" is a prefix
+                current.add(prefix && i == tokens.size() - 1 ? tokens.get(i) + "*" : tokens.get(i));
+            }
+        }
+        if (!current.isEmpty()) {
+            clauses.add(current);
+        }
+        return clauses;
+    }
+
+    private Cursor compile(List<List<String>> clauses) {
+        List<Cursor> alternatives = new ArrayList<>();
+        for (List<String> clause : clauses) {
+            List<Cursor> required = new ArrayList<>();
+            for (String term : clause) {
+                required.add(term.endsWith("*") ? prefixCursor(term.substring(0, term.length() - 1)) : termCursor(term));
+            }
+            alternatives.add(required.size() == 1 ? required.get(0) : new AndCursor(required));
+        }
+        if (alternatives.isEmpty()) {
+            return minId -> Cursor.END;
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new OrCursor(alternatives);
+    }
+
+    private Cursor termCursor(String term) {
+        Postings postings = stripes[stripeIndex(term)].terms.get(term);
+        return postings == null ? minId -> Cursor.END : new PostingsCursor(postings);
+    }
+
+    // All terms with the prefix, merged as they are read so a page costs only what it returns
+    private Cursor prefixCursor(String prefix) {
+        List<Cursor> cursors = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            Map<String, Postings> matching = prefix.isEmpty() ? stripe.terms
+                    : stripe.terms.subMap(prefix, prefix + Character.MAX_VALUE);
+            for (Postings postings : matching.values()) {
+                cursors.add(new PostingsCursor(postings));
+            }
+        }
+        return cursors.size() == 1 ? cursors.get(0) : new MergeCursor(cursors);
+    }
+
+    // Smallest matching ID at or above minId, or END
+    private interface Cursor {
+        long END = Long.MIN_VALUE;
+
+        long next(long minId);
+    }
+
+    private static final class PostingsCursor implements Cursor {
+        private final Postings postings;
+        private int block;
+        private int position;
+
+        PostingsCursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        @Override
+        public long next(long minId) {
+            if (postings.size == 0) {
+                return END;
+            }
+            if (block < postings.blockCount && postings.last(block) < minId) {
+                // Binary search the later blocks for the first that reaches minId
+                int low = block + 1;
+                int high = postings.blockCount;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (postings.last(mid) < minId) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                block = low;
+                position = 0;
+            }
+            if (block == postings.blockCount) {
+                return END;
+            }
+            int index = Arrays.binarySearch(postings.blocks[block], position, postings.counts[block], minId);
+            position = index >= 0 ? index : -(index + 1);
+            return postings.blocks[block][position];
+        }
+    }
+
+    private static final class AndCursor implements Cursor {
+        private final List<Cursor> cursors;
+
+        AndCursor(List<Cursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        @Override
+        public long next(long minId) {
+            long candidate = minId;
+            int agreed = 0;
+            int i = 0;
+            // Leapfrog: every cursor must land on the same ID
+            while (agreed < cursors.size()) {
+                long found = cursors.get(i).next(candidate);
+                if (found == END) {
+                    return END;
+                }
+                if (found == candidate) {
+                    agreed++;
+                } else {
+                    candidate = found;
+                    agreed = 1;
+                }
+                i = (i + 1) % cursors.size();
+            }
+            return candidate;
+        }
+    }
+
+    private static final class OrCursor implements Cursor {
+        private final List<Cursor> cursors;
+        private final long[] heads;
+
+        OrCursor(List<Cursor> cursors) {
+            this.cursors = cursors;
+            this.heads = new long[cursors.size()];
+            Arrays.fill(heads, Long.MIN_VALUE + 1);
+        }
+
+        @Override
+        public long next(long minId) {
+            long best = END;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != END && heads[i] < minId) {
+                    heads[i] = cursors.get(i).next(minId);
+                }
+                if (heads[i] != END && (best == END || heads[i] < best)) {
+                    best = heads[i];
+                }
+            }
+            return best;
+        }
+    }
+
+    // Union of many cursors, e.g. every term under a prefix: a heap ordered by each
+    // cursor's next ID, so a step advances only the cursors that fell behind
+    private static final class MergeCursor implements Cursor {
+        private final List<Cursor> cursors;
+        private PriorityQueue<Head> heads;
+
+        private static final class Head {
+            final Cursor cursor;
+            long id;
+
+            Head(Cursor cursor, long id) {
+                this.cursor = cursor;
+                this.id = id;
+            }
+        }
+
+        MergeCursor(List<Cursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        @Override
+        public long next(long minId) {
+            if (heads == null) {
+                heads = new PriorityQueue<>(Math.max(1, cursors.size()), Comparator.comparingLong(head -> head.id));
+                for (Cursor cursor : cursors) {
+                    long id = cursor.next(minId);
+                    if (id != END) {
+                        heads.add(new Head(cursor, id));
+                    }
+                }
+            }
+            while (!heads.isEmpty() && heads.peek().id < minId) {
+                Head head = heads.poll();
+                head.id = head.cursor.next(minId);
+                if (head.id != END) {
+                    heads.add(head);
+                }
+            }
+            return heads.isEmpty() ? END : heads.peek().id;
+        }
+    }
+
+    // Writes the index to file (via a temp file and rename)
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        // No adds or removes meanwhile; searches only read, so they may carry on
+        documentLock.writeLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(documents.sum());
+            out.writeLong(checksum.sum());
+            int termCount = 0;
+            for (Stripe stripe : stripes) {
+                termCount += stripe.terms.size();
+            }
+            out.writeInt(termCount);
+            for (Stripe stripe : stripes) {
+                for (Map.Entry<String, Postings> entry : stripe.terms.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    Postings postings = entry.getValue();
+                    out.writeInt(postings.size);
+                    // IDs are ascending, so store the gaps as varints
+                    long previous = 0;
+                    for (int b = 0; b < postings.blockCount; b++) {
+                        for (int i = 0; i < postings.counts[b]; i++) {
+                            writeVarLong(out, postings.blocks[b][i] - previous);
+                            previous = postings.blocks[b][i];
+                        }
+                    }
+                }
+            }
+        } finally {
+            documentLock.writeLock().unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Replaces the contents with a saved index. False (and left empty) if the file is missing,
+    // from another format, or its checksum differs from expectedChecksum.
+    public boolean load(Path file, long expectedChecksum) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        lockAll();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            clearAll();
+            if (in.readInt() != MAGIC) {
+                return false;
+            }
+            long savedDocuments = in.readLong();
+            long savedChecksum = in.readLong();
+            if (checksum(savedDocuments, savedChecksum) != expectedChecksum) {
+                return false;
+            }
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                Postings postings = new Postings();
+                int size = in.readInt();
+                long previous = 0;
+                for (int i = 0; i < size; i++) {
+                    // Ascending, so each add fills the last block
+                    previous += readVarLong(in);
+                    postings.add(previous);
+                }
+                stripes[stripeIndex(term)].terms.put(term, postings);
+            }
+            documents.add(savedDocuments);
+            checksum.add(savedChecksum);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading text index: " + e.getMessage());
+            clearAll();
+            return false;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in text index");
+    }
+}
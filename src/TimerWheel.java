@@ -0,0 +1,101 @@
+package simpleloginsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hashed timer wheel: deadlines go into one of a fixed ring of buckets by their tick,
+// so scheduling is O(1) and each advance only looks at the buckets whose ticks have
+// passed. Deadlines more than a turn of the wheel away wait in their bucket for later
+// rounds. One caller (e.g. a single scheduled thread) advances it for every timer,
+// instead of a thread or scheduled task per timer.
+public class TimerWheel<T> {
+    // Called for a timer that is due; returns a new deadline (epoch millis) to keep it, or
+    // a negative value to drop it. Lets timers be extended without touching the wheel.
+    public interface Handler<T> {
+        long expire(T item, long nowMillis);
+    }
+
+    private static final class Timer<T> {
+        final T item;
+        final long tick;
+
+        Timer(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+
+    private final long tickMillis;
+    private final List<Timer<T>>[] buckets;
+    private final int mask;
+    // Last tick advance() has processed
+    private long currentTick;
+    private int size;
+
+    public TimerWheel(long tickMillis, int bucketCount, long nowMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms");
+        }
+        if (bucketCount < 1 || Integer.bitCount(bucketCount) != 1) {
+            throw new IllegalArgumentException("Bucket count must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        // No generic array creation in Java; every element is a List<Timer<T>>
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Timer<T>>[] ring = new List[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            ring[i] = new ArrayList<>();
+        }
+        this.buckets = ring;
+        this.mask = bucketCount - 1;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    // Fires on the first advance at or after deadlineMillis (rounded up to a tick)
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        buckets[(int) (tick & mask)].add(new Timer<>(item, tick));
+        size++;
+    }
+
+    // Runs handler for every timer due by nowMillis; returns how many were dropped
+    public synchronized int advance(long nowMillis, Handler<T> handler) {
+        long nowTick = nowMillis / tickMillis;
+        if (nowTick <= currentTick) {
+            return 0;
+        }
+        // After a long pause every bucket is visited once, as of now
+        long first = Math.max(currentTick + 1, nowTick - mask);
+        currentTick = nowTick;
+        List<Timer<T>> rescheduled = new ArrayList<>();
+        int dropped = 0;
+        for (long tick = first; tick <= nowTick; tick++) {
+            List<Timer<T>> bucket = buckets[(int) (tick & mask)];
+            int kept = 0;
+            for (Timer<T> timer : bucket) {
+                if (timer.tick > nowTick) {
+                    // A later round
+                    bucket.set(kept++, timer);
+                    continue;
+                }
+                long next = handler.expire(timer.item, nowMillis);
+                if (next < 0) {
+                    dropped++;
+                } else {
+                    rescheduled.add(new Timer<>(timer.item, Math.max(nowTick + 1, (next + tickMillis - 1) / tickMillis)));
+                }
+            }
+            bucket.subList(kept, bucket.size()).clear();
+        }
+        for (Timer<T> timer : rescheduled) {
+            buckets[(int) (timer.tick & mask)].add(timer);
+        }
+        size -= dropped;
+        return dropped;
+    }
+
+    // Timers scheduled and not yet dropped
+    public synchronized int size() {
+        return size;
+    }
+}
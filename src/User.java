@@ -2,6 +2,7 @@ package simpleloginsystem;
 
 public class User {
     private String username;
+    // A PasswordHasher hash, or plain text for users saved before passwords were hashed
     private String password;
     private String cellNumber;
     private String firstName;
@@ -17,11 +18,20 @@ public class User {
 
     // Getters
     public String getUsername() { return username; }
-    public String getPassword() { return password; }
+    public synchronized String getPassword() { return password; }
     public String getCellNumber() { return cellNumber; }
     public String getFirstName() { return firstName; }
     public String getLastName() { return lastName; }
 
+    // Swaps the stored password for replacement unless another thread changed it first
+    public synchronized boolean replacePassword(String expected, String replacement) {
+        if (!password.equals(expected)) {
+            return false;
+        }
+        password = replacement;
+        return true;
+    }
+
     public String getFullName() {
         return firstName + " " + lastName;
     }
@@ -0,0 +1,198 @@
+package simpleloginsystem;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Registered users by username, optionally kept in an append-only file of JSON lines
+// that is replayed on startup. Lookups are one hash probe; registrations from many
+// threads only contend on the file append.
+// A Bloom filter in front of the lookups answers most "no such user" questions, which
+// are the common case during sign-up, without going to the users themselves. With a
+// file it is saved next to it on close and reused if the file has not changed since.
+public class UserRegistry {
+    private static final int MIN_FILTER_KEYS = 1024;
+
+    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    private final FileChannel file;
+    private final Path filterFile;
+    private final ScalableBloomFilter filter;
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private int skippedLines;
+
+    // In memory only
+    public UserRegistry() {
+        this.file = null;
+        this.filterFile = null;
+        this.filter = new ScalableBloomFilter(MIN_FILTER_KEYS);
+    }
+
+    // Loads the users already in file, then appends new ones to it
+    public UserRegistry(Path file) throws IOException {
+        load(file);
+        this.file = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        endLastLine(file);
+        this.filterFile = file.resolveSibling(file.getFileName() + ".bloom");
+        ScalableBloomFilter saved = ScalableBloomFilter.load(filterFile, this.file.size());
+        if (saved == null) {
+            saved = new ScalableBloomFilter(Math.max(MIN_FILTER_KEYS, users.size() * 2L));
+            for (String username : users.keySet()) {
+                saved.add(username);
+            }
+        }
+        this.filter = saved;
+    }
+
+    private void load(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    // A later line for the same user is a password upgrade
+                    User user = fromJSON(new JSONObject(line));
+                    users.put(user.getUsername(), user);
+                } catch (JSONException e) {
+                    // A line cut short by a crash; the users before it are intact
+                    skippedLines++;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // First start: nothing registered yet
+        }
+    }
+
+    // A crash can leave half a line at the end; start the next user on a line of its own
+    private void endLastLine(Path path) throws IOException {
+        long size = file.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            reader.read(last, size - 1);
+        }
+        if (last.get(0) != '\n') {
+            file.write(ByteBuffer.wrap(new byte[] {'\n'}));
+        }
+    }
+
+    // Adds user unless the username is taken; exactly one of several threads registering
+    // the same name succeeds. False also if the user could not be written to the file.
+    public boolean register(User user) {
+        // Into the filter first, so no lookup can find the user but miss it in the filter
+        filter.add(user.getUsername());
+        if (users.putIfAbsent(user.getUsername(), user) != null) {
+            return false;
+        }
+        try {
+            append(user);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving user: " + e.getMessage());
+            users.remove(user.getUsername(), user);
+            return false;
+        }
+    }
+
+    // Saves the current details of a registered user, e.g. after a password upgrade
+    public void update(User user) {
+        try {
+            append(user);
+        } catch (IOException e) {
+            // The old record still loads, and still verifies, next time
+            System.err.println("Error saving user: " + e.getMessage());
+        }
+    }
+
+    private void append(User user) throws IOException {
+        if (file == null) {
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((toJSON(user) + "\n").getBytes(StandardCharsets.UTF_8));
+        synchronized (file) {
+            while (line.hasRemaining()) {
+                file.write(line);
+            }
+        }
+    }
+
+    public User find(String username) {
+        if (!filter.mightContain(username)) {
+            filterRejections.increment();
+            return null;
+        }
+        User user = users.get(username);
+        if (user == null) {
+            falsePositives.increment();
+        }
+        return user;
+    }
+
+    public boolean contains(String username) {
+        return find(username) != null;
+    }
+
+    // Of the lookups for missing users so far, the share the filter did not catch
+    public double getFalsePositiveRate() {
+        long missed = falsePositives.sum();
+        long total = missed + filterRejections.sum();
+        return total == 0 ? 0 : (double) missed / total;
+    }
+
+    // Lookups answered by the filter alone
+    public long getFilterRejections() { return filterRejections.sum(); }
+
+    public ScalableBloomFilter getFilter() { return filter; }
+
+    public int size() {
+        return users.size();
+    }
+
+    // Unreadable lines passed over while loading
+    public int getSkippedLines() { return skippedLines; }
+
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        try {
+            synchronized (file) {
+                file.force(false);
+                filter.save(filterFile, file.size());
+                file.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing user file: " + e.getMessage());
+        }
+    }
+
+    private static JSONObject toJSON(User user) {
+        JSONObject json = new JSONObject();
+        json.put("username", user.getUsername());
+        json.put("password", user.getPassword());
+        json.put("cellNumber", user.getCellNumber());
+        json.put("firstName", user.getFirstName());
+        json.put("lastName", user.getLastName());
+        return json;
+    }
+
+    private static User fromJSON(JSONObject json) {
+        return new User(json.getString("firstName"), json.getString("lastName"), json.getString("username"),
+                json.getString("password"), json.getString("cellNumber"));
+    }
+}
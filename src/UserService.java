@@ -1,49 +1,149 @@
 package simpleloginsystem;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+// Passwords are stored as PasswordHasher hashes. Hashing and checking them runs on a
+// CredentialPipeline, never on the caller's thread; the async methods return at once.
 public class UserService {
-    private List<User> users;
+    private final UserRegistry users;
+    private final CredentialPipeline credentials;
+    private final SessionManager sessions = new SessionManager();
+    // Checked in place of a password when the username is unknown
+    private final String missingUserHash;
     private ValidationService validationService;
 
+    // Users are kept in memory only
     public UserService() {
-        this.users = new ArrayList<>();
+        this(new UserRegistry(), new CredentialPipeline(PasswordHasher.getDefault()));
+    }
+
+    // Users are saved to usersFile and loaded from it again on the next start
+    public UserService(Path usersFile) throws IOException {
+        this(usersFile, new CredentialPipeline(PasswordHasher.getDefault()));
+    }
+
+    public UserService(Path usersFile, CredentialPipeline credentials) throws IOException {
+        this(new UserRegistry(usersFile), credentials);
+    }
+
+    private UserService(UserRegistry users, CredentialPipeline credentials) {
+        this.users = users;
+        this.credentials = credentials;
+        this.missingUserHash = credentials.getHasher().hash(UUID.randomUUID().toString());
         this.validationService = new ValidationService();
         // Create sample user as per POE requirements
         createSampleUser();
     }
 
     private void createSampleUser() {
-        User sampleUser = new User("Keegan", "Miller", "k_mil", "Pass123!", "+27838884567");
-        users.add(sampleUser);
+        // Already there if the registry was loaded from a file
+        if (!users.contains("k_mil")) {
+            users.register(new User("Keegan", "Miller", "k_mil", credentials.getHasher().hash("Pass123!"),
+                    "+27838884567"));
+        }
     }
 
+    // False if a detail is invalid or the username is already taken. user carries the
+    // plain password; the registered copy carries its hash.
     public boolean registerUser(User user) {
         if (validationService.checkUsername(user.getUsername()) &&
                 validationService.checkPassword(user.getPassword()) &&
                 validationService.checkCellNumber(user.getCellNumber())) {
-            users.add(user);
-            return true;
+            if (users.contains(user.getUsername())) {
+                return false;
+            }
+            String hash = await(credentials.hash(user.getPassword()));
+            return users.register(new User(user.getFirstName(), user.getLastName(), user.getUsername(), hash,
+                    user.getCellNumber()));
         }
         return false;
     }
 
+    // The user, or null if the username or password is wrong. Fails with
+    // RejectedExecutionException when the pipeline is overloaded and sheds the request.
+    public CompletableFuture<User> loginUserAsync(String username, String password) {
+        User user = users.find(username);
+        if (user == null) {
+            // Same work as a wrong password, so the response time does not tell which
+            // usernames exist
+            return credentials.submit(() -> {
+                credentials.getHasher().verify(password, missingUserHash);
+                return null;
+            });
+        }
+        return credentials.submit(() -> {
+            String stored = user.getPassword();
+            if (!credentials.getHasher().verify(password, stored)) {
+                return null;
+            }
+            // Plain text (or a weaker hash) is replaced now that we have the password
+            if (credentials.getHasher().needsUpgrade(stored)
+                    && user.replacePassword(stored, credentials.getHasher().hash(password))) {
+                users.update(user);
+            }
+            return user;
+        });
+    }
+
+    public CompletableFuture<Boolean> checkCredentials(String username, String password) {
+        return loginUserAsync(username, password).thenApply(Objects::nonNull);
+    }
+
+    // Waits for loginUserAsync
     public User loginUser(String username, String password) {
-        for (User user : users) {
-            if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                return user;
+        return await(loginUserAsync(username, password));
+    }
+
+    // Load shedding and other failures surface as the original exception
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
         }
-        return null;
     }
 
+    // Logs in and opens a session; the token stands in for the password until the
+    // session expires. Null if the credentials are wrong.
+    public String startSession(String username, String password) {
+        User user = loginUser(username, password);
+        return user == null ? null : sessions.open(user);
+    }
+
+    // The user a session token belongs to, or null if it is unknown or expired
+    public User getSessionUser(String token) {
+        return sessions.validate(token);
+    }
+
+    public boolean endSession(String token) {
+        return sessions.end(token);
+    }
+
+    // Live session count and token hit rate
+    public SessionManager getSessions() { return sessions; }
+
     public boolean usernameExists(String username) {
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return true;
-            }
-        }
-        return false;
+        return users.contains(username);
+    }
+
+    // Share of lookups for unknown usernames that got past the Bloom filter
+    public double getFilterFalsePositiveRate() {
+        return users.getFalsePositiveRate();
+    }
+
+    public CredentialPipeline getCredentials() { return credentials; }
+
+    public void close() {
+        credentials.close();
+        sessions.close();
+        users.close();
     }
-}
\ No newline at end of file
+}
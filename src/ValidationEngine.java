@@ -0,0 +1,121 @@
+package simpleloginsystem;
+
+// The input rules of the app, each checked in a single pass over the characters with
+// no regex and no allocation. Results are ValidationError codes; callers choose the
+// wording shown to the user.
+//   username:    at most 5 characters, including an underscore
+//   password:    at least 8 characters, with a capital letter, a digit and a special character
+//   cell number: '+' then 10 to 12 digits (international code and number)
+//   recipient:   '+' then exactly 10 digits, as message entry has always required
+//   message:     at most 250 characters
+// Letters and digits are the ASCII ones; anything else counts as a special character.
+public final class ValidationEngine {
+    public enum Field { USERNAME, PASSWORD, CELL_NUMBER, RECIPIENT, MESSAGE }
+
+    public static final int MAX_USERNAME_LENGTH = 5;
+    public static final int MIN_PASSWORD_LENGTH = 8;
+    public static final int MIN_CELL_DIGITS = 10;
+    public static final int MAX_CELL_DIGITS = 12;
+    public static final int RECIPIENT_DIGITS = 10;
+    public static final int MAX_MESSAGE_LENGTH = 250;
+
+    private ValidationEngine() {
+    }
+
+    public static ValidationError check(Field field, String input) {
+        switch (field) {
+            case USERNAME: return checkUsername(input);
+            case PASSWORD: return checkPassword(input);
+            case CELL_NUMBER: return checkCellNumber(input);
+            case RECIPIENT: return checkRecipient(input);
+            default: return checkMessage(input);
+        }
+    }
+
+    // Checks every input against one rule, writing the codes into results (which must be
+    // at least as long as inputs); returns how many were valid
+    public static int checkAll(Field field, String[] inputs, ValidationError[] results) {
+        if (results.length < inputs.length) {
+            throw new IllegalArgumentException("Need room for " + inputs.length + " results but got " + results.length);
+        }
+        int valid = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            results[i] = check(field, inputs[i]);
+            if (results[i] == ValidationError.VALID) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    public static ValidationError checkUsername(String username) {
+        if (username == null || username.isEmpty()) {
+            return ValidationError.MISSING;
+        }
+        if (username.length() > MAX_USERNAME_LENGTH) {
+            return ValidationError.USERNAME_TOO_LONG;
+        }
+        return username.indexOf('_') >= 0 ? ValidationError.VALID : ValidationError.USERNAME_NO_UNDERSCORE;
+    }
+
+    public static ValidationError checkPassword(String password) {
+        if (password == null || password.isEmpty()) {
+            return ValidationError.MISSING;
+        }
+        if (password.length() < MIN_PASSWORD_LENGTH) {
+            return ValidationError.PASSWORD_TOO_SHORT;
+        }
+        boolean hasCapital = false;
+        boolean hasDigit = false;
+        boolean hasSpecial = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                hasCapital = true;
+            } else if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c < 'a' || c > 'z') {
+                hasSpecial = true;
+            }
+        }
+        if (!hasCapital) {
+            return ValidationError.PASSWORD_NO_CAPITAL;
+        }
+        if (!hasDigit) {
+            return ValidationError.PASSWORD_NO_DIGIT;
+        }
+        return hasSpecial ? ValidationError.VALID : ValidationError.PASSWORD_NO_SPECIAL;
+    }
+
+    public static ValidationError checkCellNumber(String cellNumber) {
+        return checkNumber(cellNumber, MIN_CELL_DIGITS, MAX_CELL_DIGITS);
+    }
+
+    public static ValidationError checkRecipient(String recipient) {
+        return checkNumber(recipient, RECIPIENT_DIGITS, RECIPIENT_DIGITS);
+    }
+
+    public static ValidationError checkMessage(String messageText) {
+        if (messageText == null) {
+            return ValidationError.MISSING;
+        }
+        return messageText.length() > MAX_MESSAGE_LENGTH ? ValidationError.MESSAGE_TOO_LONG : ValidationError.VALID;
+    }
+
+    private static ValidationError checkNumber(String number, int minDigits, int maxDigits) {
+        if (number == null || number.isEmpty()) {
+            return ValidationError.MISSING;
+        }
+        if (number.charAt(0) != '+') {
+            return ValidationError.NUMBER_NO_PLUS;
+        }
+        for (int i = 1; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return ValidationError.NUMBER_NOT_DIGITS;
+            }
+        }
+        int digits = number.length() - 1;
+        return digits >= minDigits && digits <= maxDigits ? ValidationError.VALID : ValidationError.NUMBER_BAD_LENGTH;
+    }
+}
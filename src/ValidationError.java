@@ -0,0 +1,21 @@
+package simpleloginsystem;
+
+// Result of one ValidationEngine check: VALID, or the first rule the input broke
+public enum ValidationError {
+    VALID,
+    MISSING,
+    USERNAME_TOO_LONG,
+    USERNAME_NO_UNDERSCORE,
+    PASSWORD_TOO_SHORT,
+    PASSWORD_NO_CAPITAL,
+    PASSWORD_NO_DIGIT,
+    PASSWORD_NO_SPECIAL,
+    NUMBER_NO_PLUS,
+    NUMBER_BAD_LENGTH,
+    NUMBER_NOT_DIGITS,
+    MESSAGE_TOO_LONG;
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+}
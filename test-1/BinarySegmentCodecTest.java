@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONArray;
+import simpleloginsystem.BinarySegmentCodec;
+import simpleloginsystem.JournalRecord;
+import simpleloginsystem.JsonLinesCodec;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageFormatConverter;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinarySegmentCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTripKeepsEveryField() throws Exception {
+        BinarySegmentCodec codec = new BinarySegmentCodec();
+        Message message = new Message("+0027831234567", "Héllo wörld, see you at 9", 7);
+
+        byte[] frame = codec.encode(JournalRecord.store(message, 1_700_000_000_000L));
+        JournalRecord decoded = codec.decode(frame, frame.length);
+
+        assertFalse(decoded.isDelete());
+        assertEquals(1_700_000_000_000L, decoded.getTimestamp());
+        assertEquals(message.getMessageID(), decoded.getMessage().getMessageID());
+        assertEquals("+0027831234567", decoded.getMessage().getRecipient());
+        assertEquals(message.getMessageText(), decoded.getMessage().getMessageText());
+        assertEquals(message.getMessageHash(), decoded.getMessage().getMessageHash());
+        assertEquals(message.getCreatedAt(), decoded.getMessage().getCreatedAt());
+    }
+
+    @Test
+    public void testNonNumericRecipientStoredAsText() throws Exception {
+        BinarySegmentCodec codec = new BinarySegmentCodec();
+        Message message = new Message("support desk", "Call me", 0);
+
+        byte[] frame = codec.encode(JournalRecord.store(message, 0));
+
+        assertEquals("support desk", codec.decode(frame, frame.length).getMessage().getRecipient());
+    }
+
+    @Test
+    public void testChecksumDetectsCorruption() {
+        BinarySegmentCodec codec = new BinarySegmentCodec();
+        byte[] frame = codec.encode(JournalRecord.store(new Message("+27831234567", "Hello", 0), 0));
+        frame[frame.length - 6] ^= 0x20;
+
+        assertThrows(IOException.class, () -> codec.decode(frame, frame.length));
+    }
+
+    @Test
+    public void testSegmentIsSmallerThanJsonLines() {
+        BinarySegmentCodec binary = new BinarySegmentCodec();
+        JsonLinesCodec json = new JsonLinesCodec();
+        Message message = new Message("+27831234567", "Did you get the cake? See you tonight.", 3);
+        JournalRecord record = JournalRecord.store(message, System.currentTimeMillis());
+
+        assertTrue(binary.encode(record).length < json.encode(record).length / 2);
+    }
+
+    @Test
+    public void testSegmentJournalStoresDeletesAndRepairsTornTail() throws Exception {
+        Path segment = tempDir.resolve("messages.qcs");
+        MessageJournal journal = new MessageJournal(segment, null);
+        MessageStore store = new MessageStore(journal);
+        Message keep = new Message("+27831234567", "Keep", 0);
+        Message drop = new Message("+27831234567", "Drop", 1);
+        store.storeMessage(keep);
+        store.storeMessage(drop);
+        store.deleteByMessageHash(drop.getMessageHash());
+        store.close();
+
+        // Half a record left behind by a crash
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        MessageJournal reopened = new MessageJournal(segment, null);
+        MessageStore reloaded = new MessageStore(reopened);
+        assertEquals(1, reloaded.getStoredMessages().size());
+        assertEquals(keep.getMessageID(), reloaded.getStoredMessages().get(0).getMessageID());
+
+        reloaded.storeMessage(new Message("+27831234567", "After the crash", 2)).get();
+        reloaded.close();
+        assertEquals(2, new MessageStore(new MessageJournal(segment, null)).getStoredMessages().size());
+    }
+
+    @Test
+    public void testConvertJsonToSegmentAndBack() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        JSONArray legacy = new JSONArray();
+        for (int i = 0; i < 50; i++) {
+            Message message = new Message("+2783123456" + (i % 10), "Message body number " + i, i);
+            messages.add(message);
+            legacy.put(message.toJSON());
+        }
+        Path json = tempDir.resolve("messages.json");
+        Path segment = tempDir.resolve("messages.qcs");
+        Path back = tempDir.resolve("roundtrip.json");
+        Files.write(json, legacy.toString(4).getBytes());
+
+        assertEquals(50, MessageFormatConverter.convert(json, segment));
+        assertEquals(50, MessageFormatConverter.convert(segment, back));
+        assertTrue(Files.size(segment) < Files.size(json) / 2);
+
+        JSONArray roundTrip = new JSONArray(new String(Files.readAllBytes(back)));
+        assertEquals(50, roundTrip.length());
+        for (int i = 0; i < 50; i++) {
+            Message original = messages.get(i);
+            assertEquals(original.getMessageID(), roundTrip.getJSONObject(i).getString("messageID"));
+            assertEquals(original.getMessageHash(), roundTrip.getJSONObject(i).getString("messageHash"));
+            assertEquals(original.getMessageText(), roundTrip.getJSONObject(i).getString("messageText"));
+            assertEquals(original.getRecipient(), roundTrip.getJSONObject(i).getString("recipient"));
+        }
+    }
+
+    @Test
+    public void testLegacyArrayKeepsSentAndStoredCopiesApart() throws Exception {
+        JsonLinesCodec codec = new JsonLinesCodec();
+        Message both = new Message("+27831234567", "Sent and stored", 0);
+        Message dropped = new Message("+27831234568", "Stored then deleted", 1);
+        Path journal = tempDir.resolve("messages.jsonl");
+        try (OutputStream out = Files.newOutputStream(journal)) {
+            out.write(codec.encode(JournalRecord.send(both, "alice", 1L)));
+            out.write(codec.encode(JournalRecord.store(both, 2L)));
+            out.write(codec.encode(JournalRecord.store(dropped, 3L)));
+            out.write(codec.encode(JournalRecord.delete(dropped.getMessageID(), JournalRecord.Op.STORE, 4L)));
+        }
+
+        Path json = tempDir.resolve("messages.json");
+        assertEquals(2, MessageFormatConverter.convert(journal, json));
+        JSONArray array = new JSONArray(new String(Files.readAllBytes(json)));
+        assertEquals(2, array.length());
+        assertEquals(both.getMessageID(), array.getJSONObject(0).getString("messageID"));
+        assertEquals(both.getMessageID(), array.getJSONObject(1).getString("messageID"));
+
+        List<JournalRecord> records = new ArrayList<>();
+        MessageFormatConverter.read(json, records::add);
+        assertEquals(JournalRecord.Op.SEND, records.get(0).getOp());
+        assertEquals("alice", records.get(0).getSender());
+        assertEquals(JournalRecord.Op.STORE, records.get(1).getOp());
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentMessageStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MessageStore newStore() {
+        return new MessageStore(new MessageJournal(tempDir.resolve("messages.jsonl"), null));
+    }
+
+    @Test
+    public void testConcurrentAddsAndDeletesStayConsistent() throws Exception {
+        MessageStore store = newStore();
+        int threads = 8;
+        int perThread = 2000;
+        ConcurrentLinkedQueue<Message> added = new ConcurrentLinkedQueue<>();
+        AtomicInteger deleted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Message msg = new Message("+2783123456" + thread, "T" + thread + "x" + i + " message", i);
+                    store.addSentMessage(msg, "user" + thread);
+                    added.add(msg);
+                    assertTrue(store.searchByMessageId(msg.getMessageID()).contains(msg.getMessageText()));
+                    if (i % 4 == 0 && store.deleteByMessageHash(msg.getMessageHash()).endsWith("successfully deleted.")) {
+                        deleted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int expected = threads * perThread - deleted.get();
+        assertEquals(expected, store.getSentMessages().size());
+        assertEquals(expected, store.getSentCount());
+        int byRecipient = 0;
+        for (int t = 0; t < threads; t++) {
+            byRecipient += store.countByRecipient("+2783123456" + t);
+        }
+        assertEquals(expected, byRecipient);
+        store.close();
+    }
+
+    @Test
+    public void testReportsReadAConsistentSnapshotDuringWrites() throws Exception {
+        MessageStore store = newStore();
+        for (int i = 0; i < 1000; i++) {
+            store.addSentMessage(new Message("+27831234567", "Seed " + i, i), "seed");
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            int i = 0;
+            while (done.getCount() > 0) {
+                Message msg = new Message("+27831234568", "Churn " + i, i++);
+                store.addSentMessage(msg, "writer");
+                store.deleteByMessageHash(msg.getMessageHash());
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                // Every add is deleted again, so any consistent view has the seed messages plus at most one more
+                int size = store.getSentMessages().size();
+                assertTrue(size == 1000 || size == 1001, "unexpected snapshot size " + size);
+            }
+        } finally {
+            done.countDown();
+            writer.join();
+        }
+        store.close();
+    }
+
+    @Test
+    public void testSameMessageTwiceInOneListIsRejected() {
+        MessageStore store = newStore();
+        Message msg = new Message("+27831234567", "Only once", 0);
+        store.addSentMessage(msg, "alice");
+        assertThrows(IllegalArgumentException.class, () -> store.addSentMessage(msg, "alice"));
+        // The same message may still be in another list
+        store.addStoredMessage(msg);
+
+        assertEquals(1, store.getSentMessages().size());
+        store.deleteByMessageHash(msg.getMessageHash());
+        assertEquals(0, store.getSentMessages().size());
+        assertEquals(1, store.getStoredMessages().size());
+        store.close();
+    }
+}
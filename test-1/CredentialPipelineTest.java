@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.CredentialPipeline;
+import simpleloginsystem.PasswordHasher;
+import simpleloginsystem.User;
+import simpleloginsystem.UserService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+public class CredentialPipelineTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testHashAndVerify() {
+        PasswordHasher hasher = new PasswordHasher(1000);
+        String hash = hasher.hash("Pass123!");
+        assertTrue(hash.startsWith("pbkdf2-sha256$1000$"));
+        assertNotEquals(hash, hasher.hash("Pass123!"));
+        assertTrue(hasher.verify("Pass123!", hash));
+        assertFalse(hasher.verify("Pass123?", hash));
+        assertFalse(hasher.verify("Pass123!", "pbkdf2-sha256$1000$not base64$x"));
+        // Plain text from before hashing still verifies, and is due an upgrade
+        assertTrue(hasher.verify("Pass123!", "Pass123!"));
+        assertTrue(hasher.needsUpgrade("Pass123!"));
+        assertFalse(hasher.needsUpgrade(hash));
+        assertTrue(new PasswordHasher(2000).needsUpgrade(hash));
+        assertTrue(PasswordHasher.calibrate(1).getIterations() >= PasswordHasher.MIN_ITERATIONS);
+    }
+
+    @Test
+    public void testPlainTextPasswordsAreUpgradedOnLogin() throws Exception {
+        Path file = tempDir.resolve("users.jsonl");
+        Files.write(file, List.of("{\"username\":\"a_lov\",\"password\":\"Engine#1843\",\"cellNumber\":\"+27831234567\","
+                + "\"firstName\":\"Ada\",\"lastName\":\"Lovelace\"}"), StandardCharsets.UTF_8);
+        PasswordHasher hasher = new PasswordHasher(1000);
+        UserService service = new UserService(file, new CredentialPipeline(hasher));
+        assertFalse(service.checkCredentials("a_lov", "wrong").get());
+        assertTrue(service.checkCredentials("a_lov", "Engine#1843").get());
+        assertTrue(PasswordHasher.isHash(service.loginUser("a_lov", "Engine#1843").getPassword()));
+        assertTrue(service.registerUser(new User("Bo", "Bell", "b_bel", "Secret#123", "+27831234567")));
+        service.close();
+
+        String saved = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertFalse(saved.contains("Secret#123"));
+        UserService reopened = new UserService(file, new CredentialPipeline(hasher));
+        assertTrue(PasswordHasher.isHash(reopened.loginUser("a_lov", "Engine#1843").getPassword()));
+        assertNotNull(reopened.loginUser("b_bel", "Secret#123"));
+        assertNull(reopened.loginUser("b_bel", "Secret#124"));
+        reopened.close();
+    }
+
+    @Test
+    public void testFullQueueShedsLoad() throws Exception {
+        CredentialPipeline pipeline = new CredentialPipeline(new PasswordHasher(1000), 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = pipeline.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        });
+        // The worker may not have taken the first task yet, so the queue may hold it
+        CompletableFuture<Boolean> queued = null;
+        CompletableFuture<Boolean> shed = null;
+        for (int i = 0; i < 3 && shed == null; i++) {
+            CompletableFuture<Boolean> next = pipeline.verify("x", "x");
+            if (next.isCompletedExceptionally()) {
+                shed = next;
+            } else {
+                queued = next;
+            }
+        }
+        assertNotNull(shed);
+        ExecutionException e = assertThrows(ExecutionException.class, shed::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertTrue(pipeline.getShed() >= 1);
+        release.countDown();
+        assertTrue(running.get());
+        if (queued != null) {
+            assertTrue(queued.get());
+        }
+        pipeline.close();
+    }
+
+    @Test
+    public void testUnknownUsernameIsCheckedOnThePipeline() throws Exception {
+        CredentialPipeline pipeline = new CredentialPipeline(new PasswordHasher(1000), 1, 16);
+        UserService service = new UserService(tempDir.resolve("users.jsonl"), pipeline);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        // Waits its turn behind the busy worker like a real check, rather than answering at once
+        CompletableFuture<User> unknown = service.loginUserAsync("nobody", "Pass123!");
+        assertFalse(unknown.isDone());
+        release.countDown();
+        assertNull(unknown.get());
+        service.close();
+    }
+}
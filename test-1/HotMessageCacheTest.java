@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.CacheStats;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HotMessageCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testColdMessagesAreSpilledAndFaultedBackIn() {
+        MessageStore store = new MessageStore(tempDir, 100_000, 100);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Message msg = new Message("+27831234567", "Message number " + i, i);
+            messages.add(msg);
+            store.addStoredMessage(msg);
+        }
+        CacheStats stats = store.getCacheStats();
+        assertTrue(stats.getHotMessages() <= 100);
+        assertEquals(1900, stats.getEvictions());
+        assertTrue(stats.getColdBytes() > 0);
+        assertTrue(Files.exists(tempDir.resolve("cold-text.seg")));
+
+        // A spilled message is a miss the first time and a hit the next
+        int i = 0;
+        while (store.getCacheStats().getMisses() == 0) {
+            assertEquals("Recipient: +27831234567\nMessage: Message number " + i,
+                    store.searchByMessageId(messages.get(i++).getMessageID()));
+        }
+        long hits = store.getCacheStats().getHits();
+        store.searchByMessageId(messages.get(i - 1).getMessageID());
+        assertEquals(hits + 1, store.getCacheStats().getHits());
+        assertEquals(1, store.getCacheStats().getMisses());
+
+        // Reports read spilled text without bringing it back
+        String report = store.findByRecipient("+27831234567");
+        assertTrue(report.contains("Message number 1999"));
+        assertTrue(report.contains("Message number 1000"));
+
+        Message deleted = messages.get(500);
+        assertEquals("Message \"Message number 500\" successfully deleted.",
+                store.deleteByMessageHash(deleted.getMessageHash()));
+        assertEquals("Message number 500", deleted.getMessageText());
+        store.close();
+        assertFalse(Files.exists(tempDir.resolve("cold-text.seg")));
+
+        MessageStore reopened = new MessageStore(tempDir, 100_000, 100);
+        assertEquals(1999, reopened.getStoredMessages().size());
+        assertEquals("Message number 1234", reopened.getStoredMessages().get(1233).getMessageText());
+        reopened.close();
+    }
+
+    @Test
+    public void testFrequentlyUsedMessagesSurviveNewArrivals() {
+        MessageStore store = new MessageStore(tempDir, 100_000, 100);
+        List<Message> popular = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Message msg = new Message("+27831234567", "Popular " + i, i);
+            popular.add(msg);
+            store.addStoredMessage(msg);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (Message msg : popular) {
+                store.searchByMessageId(msg.getMessageID());
+            }
+        }
+        // A flood of one-off messages
+        for (int i = 0; i < 1000; i++) {
+            store.addStoredMessage(new Message("+27830000000", "One-off " + i, i));
+        }
+        long missesBefore = store.getCacheStats().getMisses();
+        for (Message msg : popular) {
+            store.searchByMessageId(msg.getMessageID());
+        }
+        assertEquals(missesBefore, store.getCacheStats().getMisses());
+        store.close();
+    }
+
+    @Test
+    public void testBudgetMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageStore(tempDir, 100_000, 0));
+    }
+}
@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.FlushPolicy;
+import simpleloginsystem.JournalWriter;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class JournalWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MessageJournal newJournal() {
+        return new MessageJournal(tempDir.resolve("messages.jsonl"), null);
+    }
+
+    private void storeAndCheck(FlushPolicy policy, int count) throws Exception {
+        MessageJournal journal = newJournal();
+        MessageStore store = new MessageStore(journal, policy);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(store.storeMessage(new Message("+27831234567", "Message " + i, i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+        // Every completed future means the record is already in the file
+        assertEquals(count, Files.readAllLines(tempDir.resolve("messages.jsonl")).size());
+        assertEquals(count, store.getStoredMessages().size());
+        store.close();
+    }
+
+    @Test
+    public void testBatchSizePolicy() throws Exception {
+        storeAndCheck(FlushPolicy.batchSize(16), 200);
+    }
+
+    @Test
+    public void testTimeWindowPolicy() throws Exception {
+        storeAndCheck(FlushPolicy.timeWindow(5), 50);
+    }
+
+    @Test
+    public void testSyncPolicyCompletesBeforeReturning() throws Exception {
+        MessageStore store = new MessageStore(newJournal(), FlushPolicy.sync());
+        CompletableFuture<Void> stored = store.storeMessage(new Message("+27831234567", "Sync message", 0));
+
+        assertTrue(stored.isDone());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("messages.jsonl")).size());
+        store.close();
+    }
+
+    @Test
+    public void testCloseFlushesQueuedRecords() throws Exception {
+        MessageJournal journal = newJournal();
+        MessageStore store = new MessageStore(journal, FlushPolicy.timeWindow(1000));
+        CompletableFuture<Void> stored = store.storeMessage(new Message("+27831234567", "Queued message", 0));
+
+        store.close();
+
+        assertTrue(stored.isDone());
+        assertFalse(stored.isCompletedExceptionally());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("messages.jsonl")).size());
+    }
+
+    @Test
+    public void testSubmitRacingCloseNeverHangs() throws Exception {
+        MessageJournal journal = newJournal();
+        JournalWriter writer = new JournalWriter(journal, FlushPolicy.timeWindow(1));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Thread submitter = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                CompletableFuture<Void> future = writer.submit("x\n".getBytes());
+                synchronized (futures) {
+                    futures.add(future);
+                }
+            }
+        });
+        submitter.start();
+        Thread.sleep(5);
+        writer.close();
+        submitter.join();
+
+        // Each record was either written before close or refused; none is left waiting
+        synchronized (futures) {
+            for (CompletableFuture<Void> future : futures) {
+                assertTrue(future.isDone());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidPolicyRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FlushPolicy.batchSize(0));
+        assertThrows(IllegalArgumentException.class, () -> FlushPolicy.timeWindow(-1));
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+import simpleloginsystem.MessageHashBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Random;
+
+public class MessageHashBuilderTest {
+
+    // The regex version the builder replaces
+    private static String legacyHash(long messageID, int messageNumber, String messageText) {
+        String firstTwoID = Long.toString(messageID).substring(0, 2);
+        String[] words = messageText.split("\\s+");
+        String firstWord = words.length > 0 ? words[0] : "";
+        String lastWord = words.length > 1 ? words[words.length - 1] : firstWord;
+        firstWord = firstWord.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        lastWord = lastWord.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        return firstTwoID + ":" + messageNumber + ":" + firstWord + lastWord;
+    }
+
+    private static void assertSameHash(long messageID, int messageNumber, String messageText) {
+        assertEquals(legacyHash(messageID, messageNumber, messageText),
+                MessageHashBuilder.hash(messageID, messageNumber, messageText),
+                "text: [" + messageText + "]");
+    }
+
+    @Test
+    public void testMatchesLegacyOnEdgeCases() {
+        String[] texts = {
+                "", " ", "   ", "Hi", "Hi there", "Hi, how are you?", "  leading space", "trailing space  ",
+                " one ", "tab\tseparated\twords", "line\nbreak", "vertical\u000Btab", "form\ffeed\r\n",
+                "no break space", "café naïve résumé", "!!! ???", "a",
+                "123 456", "MiXeD CaSe", "　ideographic　space", "emoji 😀 end"
+        };
+        for (String text : texts) {
+            assertSameHash(1234567890L, 0, text);
+            assertSameHash(9876543210L, 42, text);
+        }
+    }
+
+    @Test
+    public void testMatchesLegacyOnNumbers() {
+        assertSameHash(1000000000L, -1, "Hello world");
+        assertSameHash(10L, Integer.MIN_VALUE, "Hello world");
+        assertSameHash(Long.MAX_VALUE, Integer.MAX_VALUE, "Hello world");
+        assertSameHash(-5L, 7, "Hello world");
+        assertSameHash(Long.MIN_VALUE, 7, "Hello world");
+    }
+
+    @Test
+    public void testMatchesLegacyOnRandomText() {
+        Random random = new Random(12);
+        char[] alphabet = "abcXYZ09 \t\n\u000B\f\r.,! éi".toCharArray();
+        for (int n = 0; n < 2000; n++) {
+            char[] text = new char[random.nextInt(20)];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertSameHash(1000000000L + random.nextInt(1_000_000_000), random.nextInt(100), new String(text));
+        }
+    }
+
+    @Test
+    public void testBuilderIsReusable() {
+        MessageHashBuilder builder = new MessageHashBuilder();
+        String longText = "first " + "x".repeat(500) + " last";
+        assertEquals(legacyHash(1234567890L, 1, longText), builder.build(1234567890L, 1, longText).toString());
+        builder.build(1234567890L, 2, "Hi there");
+        assertEquals("12:2:HITHERE", builder.toString());
+        assertEquals(12, builder.length());
+    }
+}
@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.BlockLeasingIdGenerator;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageIdGenerator;
+import simpleloginsystem.MessageIds;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MessageIdGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void assertTenDigits(long id) {
+        assertTrue(id >= MessageIdGenerator.MIN_ID && id <= MessageIdGenerator.MAX_ID, "not 10 digits: " + id);
+    }
+
+    @Test
+    public void testSequenceIdsAreUniqueAcrossThreads() throws Exception {
+        MessageIdGenerator generator = MessageIdGenerator.sequence();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    long id = generator.nextId();
+                    assertTenDigits(id);
+                    assertTrue(ids.add(id), "duplicate ID " + id);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    public void testReservedIdsAreSkipped() {
+        MessageIdGenerator probe = MessageIdGenerator.sequence();
+        long first = probe.nextId();
+        long second = probe.nextId();
+
+        MessageIdGenerator generator = MessageIdGenerator.sequence();
+        generator.reserve(new long[] {first, 42L}, 2);
+        assertEquals(second, generator.nextId());
+    }
+
+    @Test
+    public void testReservingTheSameIdsAgainAddsNothing() {
+        BlockLeasingIdGenerator generator = (BlockLeasingIdGenerator) MessageIdGenerator.sequence();
+        generator.reserve(new long[] {5L, 3L, 5L}, 3);
+        generator.reserve(new long[] {3L, 5L}, 2);
+        generator.reserve(new long[] {4L}, 1);
+        assertEquals(3, generator.getReservedCount());
+    }
+
+    @Test
+    public void testMarkFileKeepsIdsUniqueAcrossRestarts() {
+        Path mark = tempDir.resolve("ids.mark");
+        Set<Long> ids = new HashSet<>();
+        for (int run = 0; run < 3; run++) {
+            // A fresh generator per run, as after a restart
+            MessageIdGenerator generator = MessageIdGenerator.sequence(mark);
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(ids.add(generator.nextId()), "ID reissued in run " + run);
+            }
+        }
+    }
+
+    @Test
+    public void testSnowflakeIdsAreUniqueAndIncreasing() {
+        MessageIdGenerator generator = MessageIdGenerator.snowflake(1, 1);
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTenDigits(id);
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+        assertThrows(IllegalArgumentException.class, () -> MessageIdGenerator.snowflake(2, 1));
+    }
+
+    @Test
+    public void testSnowflakeBurstsAreNotReissuedAfterRestart() {
+        Path mark = tempDir.resolve("snowflake.mark");
+        Set<Long> ids = new HashSet<>();
+        for (int run = 0; run < 3; run++) {
+            // Far more IDs than a tick holds, so each run borrows ticks ahead of the clock
+            MessageIdGenerator generator = MessageIdGenerator.snowflake(1, 2, mark);
+            for (int i = 0; i < 2000; i++) {
+                long id = generator.nextId();
+                assertTenDigits(id);
+                assertTrue(ids.add(id), "ID reissued in run " + run);
+            }
+        }
+    }
+
+    @Test
+    public void testStoreKeepsTheMarkInItsOwnDirectory() throws Exception {
+        MessageIdGenerator original = MessageIds.getGenerator();
+        try {
+            Path first = Files.createDirectory(tempDir.resolve("first"));
+            Path second = Files.createDirectory(tempDir.resolve("second"));
+            Set<Long> ids = new HashSet<>();
+            MessageIds.setGenerator(MessageIdGenerator.sequence());
+            MessageStore store = new MessageStore(first, 1000);
+            MessageStore other = new MessageStore(second, 1000);
+            for (int i = 0; i < 3000; i++) {
+                Message msg = new Message("+27831234567", "Message " + i, i);
+                ids.add(msg.getId());
+                store.addSentMessage(msg, "alice");
+            }
+            store.close();
+            other.close();
+            assertTrue(Files.exists(first.resolve(MessageIdGenerator.MARK_FILE)));
+            assertTrue(Files.exists(second.resolve(MessageIdGenerator.MARK_FILE)));
+
+            // A restart: fresh generator, store opened from its directory only
+            MessageIds.setGenerator(MessageIdGenerator.sequence());
+            MessageStore reopened = new MessageStore(first, 1000);
+            for (int i = 0; i < 3000; i++) {
+                assertTrue(ids.add(new Message("+27831234567", "Later " + i, i).getId()));
+            }
+            reopened.close();
+        } finally {
+            MessageIds.setGenerator(original);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.ImportReport;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MessageImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testJsonLinesImportAcrossChunks() throws Exception {
+        Path input = tempDir.resolve("history.jsonl");
+        int lines = 40_000;
+        try (BufferedWriter out = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            for (int i = 1; i <= lines; i++) {
+                if (i % 10_000 == 0) {
+                    out.write("{\"recipient\":\"0831234567\",\"messageText\":\"Bad number\"}\n");
+                } else if (i == 25_001) {
+                    out.write("not json\n");
+                } else {
+                    String sender = i % 2 == 0 ? ",\"sender\":\"alice\"" : "";
+                    out.write("{\"recipient\":\"+2783123456\",\"messageText\":\"Historical message number " + i
+                            + " with some padding text\"" + sender + ",\"createdAt\":" + (1_700_000_000_000L + i) + "}\n");
+                }
+            }
+        }
+        assertTrue(Files.size(input) > 2 * (1 << 20));
+
+        MessageStore store = new MessageStore(tempDir.resolve("state"), 1_000_000);
+        ImportReport report = store.importFile(input);
+        assertEquals(lines - 5, report.getImportedMessages());
+        assertEquals(5, report.getRejectedLines());
+        assertEquals(List.of("line 10000: invalid recipient 0831234567", "line 20000: invalid recipient 0831234567"),
+                report.getRejections().subList(0, 2));
+        assertTrue(report.getRejections().get(2).startsWith("line 25001: "));
+
+        // File order is kept, and the creation time comes from the record
+        List<Message> stored = store.getStoredMessages();
+        assertEquals("Historical message number 1 with some padding text", stored.get(0).getMessageText());
+        assertEquals(1_700_000_000_001L, stored.get(0).getCreatedAt());
+        assertEquals(19_996, store.getSentCount());
+        assertEquals("alice", store.getSentMessages().get(0).getSender());
+        assertEquals(1, store.searchText("number 39999", null, 10).getMessages().size());
+        store.close();
+
+        MessageStore reopened = new MessageStore(tempDir.resolve("state"), 1_000_000);
+        assertEquals(lines - 5, reopened.getSentCount() + reopened.getStoredMessages().size());
+        reopened.close();
+    }
+
+    @Test
+    public void testCsvImportWithQuotedFields() throws Exception {
+        Path input = tempDir.resolve("history.csv");
+        Files.writeString(input, "createdAt,recipient,messageText,sender\r\n"
+                + "2025-03-01T09:15:00,+2783123456,\"Hi, \"\"Mike\"\"\",bob\r\n"
+                + "1700000000000,+2783123457,Plain text,\r\n"
+                + "1700000000000,+2783123457,\"Unterminated,\r\n"
+                + "1700000000000,+2783123457," + "x".repeat(251) + ",\r\n"
+                + "1700000000000,+2783123457,Missing a column\r\n"
+                + "yesterday,+2783123457,Bad time,\r\n"
+                + "1700000000000,+27831234567,A cell number but not a recipient,\r\n"
+                + "\r\n"
+                + "1700000000001,+2783123458,Last line without newline,", StandardCharsets.UTF_8);
+
+        MessageStore store = new MessageStore(tempDir.resolve("state"), 1_000_000);
+        ImportReport report = store.importFile(input);
+        assertEquals(3, report.getImportedMessages());
+        assertEquals(5, report.getRejectedLines());
+        assertTrue(report.getRejections().get(0).startsWith("line 4: "));
+        assertTrue(report.getRejections().get(3).startsWith("line 7: "));
+        // Same rule as interactive entry: exactly 10 digits after the '+'
+        assertEquals("line 8: invalid recipient +27831234567", report.getRejections().get(4));
+
+        Message sent = store.getSentMessages().get(0);
+        assertEquals("Hi, \"Mike\"", sent.getMessageText());
+        assertEquals("bob", sent.getSender());
+        assertEquals(2, store.getStoredMessages().size());
+        assertEquals("Last line without newline", store.getStoredMessages().get(1).getMessageText());
+        store.close();
+    }
+}
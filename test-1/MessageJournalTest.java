@@ -0,0 +1,177 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import simpleloginsystem.JournalRecord;
+import simpleloginsystem.LoadStats;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class MessageJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MessageJournal newJournal() {
+        return new MessageJournal(tempDir.resolve("messages.jsonl"), tempDir.resolve("messages.json"));
+    }
+
+    @Test
+    public void testAppendWritesOneLinePerMessage() throws Exception {
+        MessageJournal journal = newJournal();
+        journal.append(new Message("+27831234567", "First message", 0));
+        journal.append(new Message("+27831234568", "Second message", 1));
+        journal.close();
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("messages.jsonl"));
+        assertEquals(2, lines.size());
+        assertEquals("First message", new JSONObject(lines.get(0)).getString("messageText"));
+        assertEquals("Second message", new JSONObject(lines.get(1)).getString("messageText"));
+    }
+
+    @Test
+    public void testStoreLoadsJournalKeepingIdsAndHashes() throws Exception {
+        MessageJournal journal = newJournal();
+        Message message = new Message("+27831234567", "Hello World", 4);
+        journal.append(message);
+
+        MessageStore store = new MessageStore(journal);
+
+        assertEquals(1, store.getStoredMessages().size());
+        Message loaded = store.getStoredMessages().get(0);
+        assertEquals(message.getMessageID(), loaded.getMessageID());
+        assertEquals(message.getMessageHash(), loaded.getMessageHash());
+        assertEquals("Hello World", loaded.getMessageText());
+    }
+
+    @Test
+    public void testLegacyFileIsMigratedOnFirstStart() throws Exception {
+        JSONArray legacy = new JSONArray();
+        legacy.put(new Message("+27831234567", "Old message", 0).toJSON());
+        legacy.put(new Message("+27831234568", "Another old message", 1).toJSON());
+        Files.write(tempDir.resolve("messages.json"), legacy.toString(4).getBytes());
+
+        MessageJournal journal = newJournal();
+
+        assertFalse(Files.exists(tempDir.resolve("messages.json")));
+        assertTrue(Files.exists(tempDir.resolve("messages.json.migrated")));
+        assertEquals(2, journal.readAll().size());
+        assertEquals(2, new MessageStore(journal).getStoredMessages().size());
+    }
+
+    @Test
+    public void testDeleteWritesTombstoneHonouredOnLoad() throws Exception {
+        MessageJournal journal = newJournal();
+        Message keep = new Message("+27831234567", "Keep me", 0);
+        Message drop = new Message("+27831234568", "Drop me", 1);
+        journal.append(keep);
+        journal.append(drop);
+
+        MessageStore store = new MessageStore(journal);
+        String result = store.deleteByMessageHash(drop.getMessageHash());
+        store.close();
+
+        assertTrue(result.contains("successfully deleted"));
+        assertEquals(3, journal.readAll().size());
+        List<Message> live = journal.readLive();
+        assertEquals(1, live.size());
+        assertEquals(keep.getMessageID(), live.get(0).getMessageID());
+        assertEquals(1, new MessageStore(journal).getStoredMessages().size());
+    }
+
+    @Test
+    public void testCompactionDropsDeadRecordsAndKeepsNewStores() throws Exception {
+        MessageJournal journal = newJournal();
+        journal.setCompactionThreshold(0.9, 1_000_000);
+        MessageStore store = new MessageStore(journal);
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Message message = new Message("+27831234567", "Message number " + i, i);
+            messages.add(message);
+            store.storeMessage(message);
+        }
+        for (int i = 0; i < 15; i++) {
+            store.deleteByMessageHash(messages.get(i).getMessageHash());
+        }
+        CompletableFuture<Boolean> compaction = journal.compact();
+        store.storeMessage(new Message("+27831234567", "Stored during compaction", 20)).get();
+        compaction.get();
+        journal.compact().get();
+        store.close();
+
+        List<JournalRecord> records = journal.readAll();
+        assertEquals(6, records.size());
+        assertEquals(6, journal.readLive().size());
+        assertEquals(0.0, journal.getDeadRatio());
+    }
+
+    @Test
+    public void testCompactionTriggeredByDeadRatio() throws Exception {
+        MessageJournal journal = newJournal();
+        journal.setCompactionThreshold(0.5, 3);
+        MessageStore store = new MessageStore(journal);
+
+        Message first = new Message("+27831234567", "First", 0);
+        Message second = new Message("+27831234567", "Second", 1);
+        store.storeMessage(first);
+        store.storeMessage(second);
+        store.deleteByMessageHash(first.getMessageHash());
+
+        // Two records plus one tombstone, two of them dead: the compactor starts in the background
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.getDeadRatio() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        store.close();
+
+        assertEquals(1, journal.readAll().size());
+        assertEquals(second.getMessageID(), journal.readLive().get(0).getMessageID());
+    }
+
+    @Test
+    public void testStreamingLoadReportsStats() throws Exception {
+        MessageJournal journal = newJournal();
+        String longText = "x".repeat(2000);
+        for (int i = 0; i < 500; i++) {
+            journal.append(new Message("+27831234567", longText + i, i));
+        }
+        journal.delete(new Message("+27831234567", "unknown", 0).getMessageID()).get();
+        journal.close();
+        // Simulate a write torn by a crash
+        Files.write(tempDir.resolve("messages.jsonl"), "{\"messageID\":".getBytes(),
+                java.nio.file.StandardOpenOption.APPEND);
+
+        MessageStore store = new MessageStore(journal);
+        LoadStats stats = store.getLoadStats();
+
+        assertEquals(500, store.getStoredMessages().size());
+        assertEquals(longText + 499, store.getStoredMessages().get(499).getMessageText());
+        assertEquals(500, stats.getStoredRecords());
+        assertEquals(1, stats.getTombstones());
+        assertEquals(1, stats.getSkippedLines());
+        assertEquals(Files.size(tempDir.resolve("messages.jsonl")), stats.getBytesRead());
+
+        // The next record starts on its own line after the torn one
+        journal.append(new Message("+27831234567", "After the crash", 0));
+        assertEquals(501, new MessageStore(journal).getStoredMessages().size());
+    }
+
+    @Test
+    public void testEmptyLegacyFileMigrates() throws Exception {
+        Files.write(tempDir.resolve("messages.json"), "[ ]".getBytes());
+
+        MessageJournal journal = newJournal();
+
+        assertTrue(Files.exists(tempDir.resolve("messages.jsonl")));
+        assertEquals(0, journal.readAll().size());
+    }
+}
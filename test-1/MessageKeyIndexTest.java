@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageKeyIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageKeyIndexTest {
+
+    @Test
+    public void testNumericIdsAreTheirOwnKey() {
+        assertEquals(1234567890L, MessageKeyIndex.idKey("1234567890"));
+        assertEquals(MessageKeyIndex.fingerprint("abc"), MessageKeyIndex.idKey("abc"));
+    }
+
+    @Test
+    public void testDuplicateKeysAreFoundInInsertionOrder() {
+        MessageKeyIndex index = new MessageKeyIndex();
+        Message first = new Message("+27831234567", "First", 0);
+        Message second = new Message("+27831234567", "Second", 1);
+        index.add(42, first);
+        index.add(42, second);
+
+        assertSame(first, index.find(42, msg -> true));
+        assertSame(second, index.find(42, msg -> msg.getMessageText().equals("Second")));
+        assertTrue(index.remove(42, first));
+        assertSame(second, index.find(42, msg -> true));
+        assertNull(index.find(7, msg -> true));
+    }
+
+    @Test
+    public void testRemovalKeepsOtherEntriesReachableAcrossResizes() {
+        MessageKeyIndex index = new MessageKeyIndex();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Message msg = new Message("+27831234567", "Message " + i, i);
+            messages.add(msg);
+            // Few distinct keys so probe runs are long and shifted by deletes
+            index.add(i % 37, msg);
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            assertTrue(index.remove(i % 37, messages.get(i)));
+        }
+
+        assertEquals(2500, index.size());
+        for (int i = 1; i < 5000; i += 2) {
+            Message expected = messages.get(i);
+            assertSame(expected, index.find(i % 37, msg -> msg == expected));
+        }
+        assertFalse(index.remove(0, messages.get(0)));
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageLengthIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+
+public class MessageLengthIndexTest {
+
+    private static Message message(int length, int number) {
+        return new Message("+27831234567", "x".repeat(length), number);
+    }
+
+    @Test
+    public void testLongestPrefersEarliestAndFollowsDeletes() {
+        MessageLengthIndex index = new MessageLengthIndex();
+        Message first = message(20, 0);
+        Message tie = message(20, 1);
+        Message shorter = message(5, 2);
+        index.add(first);
+        index.add(tie);
+        index.add(shorter);
+
+        assertSame(first, index.longest());
+        index.remove(first);
+        assertSame(tie, index.longest());
+        index.remove(tie);
+        assertSame(shorter, index.longest());
+        index.remove(shorter);
+        assertNull(index.longest());
+    }
+
+    @Test
+    public void testTopKIsLongestFirst() {
+        MessageLengthIndex index = new MessageLengthIndex();
+        for (int i = 1; i <= 10; i++) {
+            index.add(message(i * 3, i));
+        }
+        List<Message> top = index.topK(3);
+        assertEquals(3, top.size());
+        assertEquals(30, top.get(0).getMessageText().length());
+        assertEquals(24, top.get(2).getMessageText().length());
+        assertEquals(10, index.topK(50).size());
+    }
+
+    @Test
+    public void testPercentilesUseNearestRank() {
+        MessageLengthIndex index = new MessageLengthIndex();
+        for (int i = 1; i <= 100; i++) {
+            index.add(message(i, i));
+        }
+        // One message far beyond the short-length counts
+        index.add(message(10_000, 101));
+
+        assertEquals(1, index.percentile(0.5));
+        assertEquals(51, index.percentile(50));
+        assertEquals(96, index.percentile(95));
+        assertEquals(10_000, index.percentile(100));
+        assertThrows(IllegalArgumentException.class, () -> index.percentile(0));
+        assertEquals(-1, new MessageLengthIndex().percentile(50));
+    }
+}
@@ -0,0 +1,162 @@
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageQuery;
+import simpleloginsystem.MessageState;
+import simpleloginsystem.MessageStore;
+import simpleloginsystem.QueryResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageQueryTest {
+    private static final long NINE_AM = 1_760_000_400_000L;
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private static Message message(String recipient, String text, long createdAt) {
+        JSONObject json = new Message(recipient, text, 0).toJSON();
+        json.put("createdAt", createdAt);
+        return Message.fromJSON(json);
+    }
+
+    private static List<String> texts(QueryResult result) {
+        List<String> texts = new ArrayList<>();
+        result.forEachRemaining(msg -> texts.add(msg.getMessageText()));
+        return texts;
+    }
+
+    // Every query gives the same answer as testing each message of each list in turn
+    @Test
+    public void testIndexedPlansMatchBruteForce() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        List<Message> sent = new ArrayList<>();
+        List<Message> stored = new ArrayList<>();
+        List<Message> disregarded = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            Message msg = message("+2783000000" + (i % 7), "Message number " + i + "x".repeat(i % 40),
+                    NINE_AM + i * MINUTE);
+            switch (i % 3) {
+                case 0: store.addSentMessage(msg, "sender" + (i % 4)); sent.add(msg); break;
+                case 1: store.addStoredMessage(msg); stored.add(msg); break;
+                default: store.addDisregardedMessage(msg); disregarded.add(msg); break;
+            }
+        }
+        Message target = stored.get(123);
+        List<MessageQuery> queries = List.of(
+                MessageQuery.recipient("+27830000003"),
+                MessageQuery.id(target.getMessageID()),
+                MessageQuery.hash(target.getMessageHash()),
+                MessageQuery.sender("sender2").and(MessageQuery.lengthBetween(30, 40)),
+                MessageQuery.recipient("+27830000001").and(MessageQuery.createdBetween(NINE_AM, NINE_AM + 600 * MINUTE)),
+                MessageQuery.or(MessageQuery.recipient("+27830000001"), MessageQuery.recipient("+27830000002"))
+                        .and(MessageQuery.state(MessageState.STORED, MessageState.DISREGARDED)),
+                MessageQuery.or(MessageQuery.id(target.getMessageID()), MessageQuery.lengthBetween(50, 60)));
+
+        for (MessageQuery query : queries) {
+            List<Message> expected = new ArrayList<>();
+            sent.stream().filter(msg -> query.test(msg, MessageState.SENT)).forEach(expected::add);
+            stored.stream().filter(msg -> query.test(msg, MessageState.STORED)).forEach(expected::add);
+            disregarded.stream().filter(msg -> query.test(msg, MessageState.DISREGARDED)).forEach(expected::add);
+            try (QueryResult result = store.query(query)) {
+                List<Message> actual = new ArrayList<>();
+                result.forEachRemaining(actual::add);
+                // Index plans return each list in index order, so compare as sets
+                assertEquals(expected.size(), actual.size(), query.toString());
+                assertTrue(actual.containsAll(expected), query.toString());
+            }
+        }
+        store.close();
+    }
+
+    @Test
+    public void testPlannerPicksMostSelectiveIndex() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        for (int i = 0; i < 10; i++) {
+            store.addSentMessage(new Message("+27831234567", "Hello " + i, i), "alice");
+        }
+        Message one = new Message("+27831234567", "Only one", 10);
+        store.addStoredMessage(one);
+
+        assertEquals("sent: id index (~1); stored: id index (~1)",
+                store.explain(MessageQuery.recipient("+27831234567").and(MessageQuery.id(one.getMessageID()))
+                        .and(MessageQuery.state(MessageState.SENT, MessageState.STORED))));
+        assertEquals("sent: recipient timeline (~5); stored: recipient timeline (~5); disregarded: scan",
+                store.explain(MessageQuery.recipient("+27831234567").and(MessageQuery.createdBetween(0, NINE_AM))));
+        // One side of the OR has no index, so everything is scanned
+        assertEquals("sent: scan",
+                store.explain(MessageQuery.or(MessageQuery.hash("00:0:HELLOHELLO"), MessageQuery.sender("alice"))
+                        .and(MessageQuery.state(MessageState.SENT))));
+        assertEquals("no lists", store.explain(MessageQuery.state(MessageState.SENT).and(MessageQuery.state(MessageState.STORED))));
+        store.close();
+    }
+
+    @Test
+    public void testResultsAreLazyAndOrderedByList() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        store.addStoredMessage(new Message("+27831234567", "Stored first", 0));
+        store.addSentMessage(new Message("+27831234567", "Sent later", 1), "alice");
+        Message gone = new Message("+27831234567", "Disregarded", 2);
+        store.addDisregardedMessage(gone);
+
+        assertEquals(List.of("Sent later", "Stored first", "Disregarded"),
+                texts(store.query(MessageQuery.recipient("+27831234567"))));
+
+        // Messages added after the query began are not part of it
+        QueryResult result = store.query(MessageQuery.all());
+        assertEquals("Sent later", result.next().getMessageText());
+        store.addSentMessage(new Message("+27831234567", "Too late", 3), "alice");
+        assertEquals(List.of("Stored first", "Disregarded"), texts(result));
+        assertFalse(result.hasNext());
+
+        // Invalid IDs match nothing, rather than failing
+        assertNull(store.query(MessageQuery.id("not an id")).first());
+        store.close();
+    }
+
+    @Test
+    public void testMessageInSeveralListsOrBranchesComesBackOnce() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        List<Message> all = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Message msg = message("+2783000000" + (i % 3), "Message number " + i, NINE_AM + i * MINUTE);
+            all.add(msg);
+            if (i % 2 == 0) {
+                store.addSentMessage(msg, "alice");
+            }
+            if (i % 3 != 0) {
+                store.addStoredMessage(msg);
+            }
+        }
+        Message both = all.get(2);
+        List<MessageQuery> queries = List.of(
+                MessageQuery.recipient("+27830000001"),
+                MessageQuery.recipient("+27830000002").and(MessageQuery.createdBetween(NINE_AM, NINE_AM + 200 * MINUTE)),
+                MessageQuery.or(MessageQuery.recipient("+27830000002"), MessageQuery.id(both.getMessageID())),
+                MessageQuery.or(MessageQuery.recipient("+27830000001"), MessageQuery.recipient("+27830000001")),
+                MessageQuery.all());
+
+        for (MessageQuery query : queries) {
+            List<Message> expected = new ArrayList<>();
+            for (int i = 0; i < all.size(); i++) {
+                boolean matched = (i % 2 == 0 && query.test(all.get(i), MessageState.SENT))
+                        || (i % 3 != 0 && query.test(all.get(i), MessageState.STORED));
+                if (matched) {
+                    expected.add(all.get(i));
+                }
+            }
+            try (QueryResult result = store.query(query)) {
+                List<Message> actual = new ArrayList<>();
+                result.forEachRemaining(actual::add);
+                assertEquals(expected.size(), actual.size(), query.toString());
+                assertTrue(actual.containsAll(expected), query.toString());
+            }
+        }
+        store.close();
+    }
+}
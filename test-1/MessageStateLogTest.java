@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MessageStateLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRestartRestoresAllListsAndSenders() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        Message sent = new Message("+27831234567", "Sent message", 0);
+        Message stored = new Message("+27831234568", "Stored message", 1);
+        Message disregarded = new Message("+27831234569", "Disregarded message", 2);
+        store.addSentMessage(sent, "alice");
+        store.storeMessage(stored).join();
+        store.addDisregardedMessage(disregarded);
+        store.close();
+
+        MessageStore reopened = new MessageStore(tempDir, 1000);
+        assertEquals(1, reopened.getSentMessages().size());
+        assertEquals(sent.getMessageID(), reopened.getSentMessages().get(0).getMessageID());
+        assertEquals(1, reopened.getStoredMessages().size());
+        assertEquals("Stored message", reopened.getStoredMessages().get(0).getMessageText());
+        assertEquals(1, reopened.getDisregardedMessages().size());
+        assertTrue(reopened.listSendersAndRecipients().contains("Sender: alice"));
+        reopened.close();
+    }
+
+    @Test
+    public void testDeletingSentCopyKeepsStoredCopyAfterRestart() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        Message both = new Message("+27831234567", "Sent and stored", 0);
+        store.addSentMessage(both, "alice");
+        store.addStoredMessage(both);
+        // The hash matches the sent copy first
+        store.deleteByMessageHash(both.getMessageHash());
+        assertEquals(0, store.getSentMessages().size());
+        assertEquals(1, store.getStoredMessages().size());
+        store.close();
+
+        MessageStore reopened = new MessageStore(tempDir, 1000);
+        assertEquals(0, reopened.getSentMessages().size());
+        assertEquals(1, reopened.getStoredMessages().size());
+        assertEquals(both.getMessageID(), reopened.getStoredMessages().get(0).getMessageID());
+        reopened.close();
+    }
+
+    @Test
+    public void testRecoveryReplaysOnlyLogTailAfterSnapshot() throws Exception {
+        MessageStore store = new MessageStore(tempDir, 1_000_000);
+        for (int i = 0; i < 50; i++) {
+            store.addStoredMessage(new Message("+27831234567", "Message " + i, i));
+        }
+        store.checkpoint().join();
+        Message late = new Message("+27831234568", "After snapshot", 50);
+        store.addSentMessage(late, "bob");
+        store.deleteByMessageHash(store.getStoredMessages().get(0).getMessageHash());
+        store.close();
+
+        assertTrue(Files.exists(tempDir.resolve("snapshot-1.qcs")));
+        assertFalse(Files.exists(tempDir.resolve("wal-0.qcs")));
+
+        MessageStore reopened = new MessageStore(tempDir, 1_000_000);
+        // 50 snapshot records plus the two changes made afterwards
+        assertEquals(52, reopened.getLoadStats().getRecordCount());
+        assertEquals(49, reopened.getStoredMessages().size());
+        assertEquals("Message 1", reopened.getStoredMessages().get(0).getMessageText());
+        assertEquals(1, reopened.getSentMessages().size());
+        reopened.close();
+    }
+
+    @Test
+    public void testSnapshotIsTakenAutomaticallyAfterInterval() throws Exception {
+        MessageStore store = new MessageStore(tempDir, 10);
+        for (int i = 0; i < 25; i++) {
+            store.addStoredMessage(new Message("+27831234567", "Message " + i, i));
+        }
+        store.close();
+
+        MessageStore reopened = new MessageStore(tempDir, 10);
+        assertEquals(25, reopened.getStoredMessages().size());
+        // Older generations are dropped once a snapshot supersedes them
+        assertFalse(Files.exists(tempDir.resolve("wal-0.qcs")));
+        reopened.close();
+    }
+}
@@ -1,7 +1,9 @@
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
 import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
 
 import static org.junit.jupiter.api.Assertions.*;
 import java.nio.file.Path;
@@ -103,4 +105,32 @@ public class MessageTest {
         assertTrue(str.contains("Recipient: " + message.getRecipient()));
         assertTrue(str.contains("Message: " + message.getMessageText()));
     }
+
+    @Test
+    public void testRecipientsAreShared() {
+        Message other = new Message(new String("+27831234567"), "Another one", 1);
+        assertSame(message.getRecipient(), other.getRecipient());
+    }
+
+    @Test
+    public void testRestoredHashIsKept() {
+        JSONObject json = message.toJSON();
+        json.put("messageHash", "99:7:LEGACYHASH");
+        Message restored = Message.fromJSON(json);
+        assertEquals("99:7:LEGACYHASH", restored.getMessageHash());
+        assertTrue(restored.hasMessageHash("99:7:LEGACYHASH"));
+
+        Message roundTrip = Message.fromJSON(message.toJSON());
+        assertEquals(message.getMessageHash(), roundTrip.getMessageHash());
+        assertTrue(roundTrip.hasMessageHash(message.getMessageHash()));
+    }
+
+    @Test
+    public void testSenderIsSetWhenSent() {
+        MessageStore store = new MessageStore(tempDir.resolve("state"), 1000);
+        assertNull(message.getSender());
+        store.addSentMessage(message, "alice");
+        assertEquals("alice", message.getSender());
+        store.close();
+    }
 }
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessagePage;
+import simpleloginsystem.RecipientIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecipientIndexTest {
+
+    private static final String RECIPIENT = "+27831234567";
+
+    @Test
+    public void testPagesListSentBeforeStored() {
+        RecipientIndex index = new RecipientIndex();
+        Message stored = new Message(RECIPIENT, "Stored", 0);
+        Message sent = new Message(RECIPIENT, "Sent", 1);
+        index.add(RecipientIndex.STORED, stored, 1);
+        index.add(RecipientIndex.SENT, sent, 2);
+        index.add(RecipientIndex.SENT, new Message("+27830000000", "Other", 2), 3);
+
+        MessagePage page = index.page(RECIPIENT, 0, 10);
+        assertEquals(2, page.getMessages().size());
+        assertSame(sent, page.getMessages().get(0));
+        assertSame(stored, page.getMessages().get(1));
+        assertFalse(page.hasMore());
+        assertSame(stored, index.page(RECIPIENT, 1, 10).getMessages().get(0));
+    }
+
+    @Test
+    public void testContinuationTokenSurvivesDeletes() {
+        RecipientIndex index = new RecipientIndex();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Message msg = new Message(RECIPIENT, "Message " + i, i);
+            messages.add(msg);
+            index.add(i < 5 ? RecipientIndex.SENT : RecipientIndex.STORED, msg, i);
+        }
+
+        MessagePage first = index.page(RECIPIENT, (String) null, 4);
+        assertEquals(4, first.getMessages().size());
+        assertTrue(first.hasMore());
+
+        // Deleting messages already returned must not shift the next page
+        index.remove(RecipientIndex.SENT, messages.get(0), 0);
+        index.remove(RecipientIndex.SENT, messages.get(1), 1);
+
+        MessagePage second = index.page(RECIPIENT, first.getContinuationToken(), 4);
+        assertEquals("Message 4", second.getMessages().get(0).getMessageText());
+        assertEquals("Message 7", second.getMessages().get(3).getMessageText());
+        MessagePage last = index.page(RECIPIENT, second.getContinuationToken(), 4);
+        assertEquals(2, last.getMessages().size());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    public void testOffsetsSkipRemovedEntries() {
+        RecipientIndex index = new RecipientIndex();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Message msg = new Message(RECIPIENT, "Message " + i, i);
+            messages.add(msg);
+            index.add(RecipientIndex.STORED, msg, i);
+        }
+        // Every other message, then most of the rest, so the list is compacted on the way
+        for (int i = 0; i < 100; i += 2) {
+            index.remove(RecipientIndex.STORED, messages.get(i), i);
+        }
+        assertEquals(50, index.count(RECIPIENT));
+        assertEquals("Message 21", index.page(RECIPIENT, 10, 1).getMessages().get(0).getMessageText());
+        for (int i = 1; i < 95; i += 2) {
+            index.remove(RecipientIndex.STORED, messages.get(i), i);
+        }
+        MessagePage rest = index.page(RECIPIENT, 0, 10);
+        assertEquals(3, rest.getMessages().size());
+        assertEquals("Message 95", rest.getMessages().get(0).getMessageText());
+        assertFalse(rest.hasMore());
+        assertEquals("Message 99", index.page(RECIPIENT, 2, 10).getMessages().get(0).getMessageText());
+    }
+
+    @Test
+    public void testInvalidTokenIsRejected() {
+        RecipientIndex index = new RecipientIndex();
+        index.add(RecipientIndex.SENT, new Message(RECIPIENT, "Hello", 0), 0);
+        assertThrows(IllegalArgumentException.class, () -> index.page(RECIPIENT, "garbage", 5));
+        assertThrows(IllegalArgumentException.class, () -> index.page(RECIPIENT, 0, 0));
+    }
+}
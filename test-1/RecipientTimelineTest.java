@@ -0,0 +1,112 @@
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.JournalRecord;
+import simpleloginsystem.JsonLinesCodec;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+public class RecipientTimelineTest {
+    private static final String RECIPIENT = "+27831234567";
+    private static final long NINE_AM = 1_760_000_400_000L;
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path tempDir;
+
+    // A message as if created at the given time
+    private static Message createdAt(String text, long millis) {
+        JSONObject json = new Message(RECIPIENT, text, 0).toJSON();
+        json.put("createdAt", millis);
+        return Message.fromJSON(json);
+    }
+
+    @Test
+    public void testRangeAndLatestQueries() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        // Added out of time order, across both lists
+        store.addStoredMessage(createdAt("9:30", NINE_AM + 30 * MINUTE));
+        store.addSentMessage(createdAt("8:59", NINE_AM - MINUTE), "alice");
+        store.addSentMessage(createdAt("9:00", NINE_AM), "alice");
+        store.addStoredMessage(createdAt("10:00", NINE_AM + 60 * MINUTE));
+        store.addSentMessage(createdAt("9:30 again", NINE_AM + 30 * MINUTE), "alice");
+        store.addSentMessage(new Message("+27830000000", "Someone else", 0), "alice");
+
+        List<Message> nineToTen = store.findByRecipientBetween(RECIPIENT, NINE_AM, NINE_AM + 60 * MINUTE, 10);
+        assertEquals(3, nineToTen.size());
+        assertEquals("9:00", nineToTen.get(0).getMessageText());
+        assertEquals("9:30", nineToTen.get(1).getMessageText());
+        assertEquals("9:30 again", nineToTen.get(2).getMessageText());
+        assertEquals(1, store.findByRecipientBetween(RECIPIENT, NINE_AM, NINE_AM + 60 * MINUTE, 1).size());
+
+        List<Message> latest = store.latestForRecipient(RECIPIENT, 2);
+        assertEquals("10:00", latest.get(0).getMessageText());
+        assertEquals("9:30 again", latest.get(1).getMessageText());
+
+        store.deleteByMessageHash(latest.get(0).getMessageHash());
+        assertEquals("9:30 again", store.latestForRecipient(RECIPIENT, 1).get(0).getMessageText());
+        store.close();
+    }
+
+    @Test
+    public void testMessageInBothListsComesBackOnce() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        Message both = createdAt("Sent and stored", NINE_AM);
+        store.addSentMessage(both, "alice");
+        store.addSentMessage(createdAt("Same minute", NINE_AM), "alice");
+        store.addStoredMessage(both);
+        store.addStoredMessage(createdAt("Later", NINE_AM + MINUTE));
+
+        List<Message> range = store.findByRecipientBetween(RECIPIENT, NINE_AM, NINE_AM + 60 * MINUTE, 10);
+        assertEquals(3, range.size());
+        assertEquals(2, store.findByRecipientBetween(RECIPIENT, NINE_AM, NINE_AM + 60 * MINUTE, 2).stream()
+                .map(Message::getId).distinct().count());
+
+        List<Message> latest = store.latestForRecipient(RECIPIENT, 3);
+        assertEquals(3, latest.size());
+        assertEquals("Later", latest.get(0).getMessageText());
+        assertEquals(3, latest.stream().map(Message::getId).distinct().count());
+        store.close();
+    }
+
+    @Test
+    public void testCreationTimeSurvivesRestart() {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        store.addStoredMessage(createdAt("Persisted", NINE_AM));
+        store.close();
+
+        MessageStore reopened = new MessageStore(tempDir, 1000);
+        assertEquals(NINE_AM, reopened.getStoredMessages().get(0).getCreatedAt());
+        assertEquals(1, reopened.findByRecipientBetween(RECIPIENT, NINE_AM, NINE_AM + 1, 10).size());
+        reopened.close();
+    }
+
+    @Test
+    public void testOldJsonRecordsUseTheirTimestamp() {
+        JSONObject json = new Message(RECIPIENT, "Legacy", 0).toJSON();
+        json.remove("createdAt");
+        json.put("timestamp", "2025-03-01T09:15:00");
+        long expected = java.time.LocalDateTime.parse("2025-03-01T09:15:00")
+                .atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+        assertEquals(expected, Message.fromJSON(json).getCreatedAt());
+    }
+
+    @Test
+    public void testJsonLinesKeepCreationTimeApartFromWriteTime() throws Exception {
+        Message msg = createdAt("Written later", NINE_AM);
+        long writtenAt = NINE_AM + 60 * MINUTE;
+        JsonLinesCodec codec = new JsonLinesCodec();
+        byte[] line = codec.encode(JournalRecord.store(msg, writtenAt));
+
+        JSONObject json = new JSONObject(new String(line, StandardCharsets.UTF_8));
+        assertEquals(JsonLinesCodec.formatTimestamp(NINE_AM), json.getString("timestamp"));
+        JournalRecord decoded = codec.decode(line, line.length);
+        assertEquals(writtenAt, decoded.getTimestamp());
+        assertEquals(NINE_AM, decoded.getMessage().getCreatedAt());
+    }
+}
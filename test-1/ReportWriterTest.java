@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
+import simpleloginsystem.ReportWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ReportWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTextReportMatchesStringVersion() throws Exception {
+        MessageStore store = new MessageStore(tempDir, 1000);
+        assertEquals("No sent messages yet.", store.printSentReport());
+        store.addSentMessage(new Message("+27831234567", "Hello there", 0), "alice");
+        store.addSentMessage(new Message("+27831234568", "Second one", 1), "bob");
+
+        StringWriter out = new StringWriter();
+        assertEquals(2, store.writeSendersAndRecipients(new ReportWriter(out, ReportWriter.Format.TEXT)));
+        assertEquals("Sender: alice\nRecipient: +27831234567\n---\nSender: bob\nRecipient: +27831234568\n---\n",
+                out.toString());
+        assertEquals(out.toString(), store.listSendersAndRecipients());
+        store.close();
+    }
+
+    @Test
+    public void testCsvAndJsonLinesEscaping() throws Exception {
+        StringWriter csv = new StringWriter();
+        ReportWriter writer = new ReportWriter(csv, ReportWriter.Format.CSV);
+        writer.begin("Message Hash", "Message");
+        writer.row("12:0:HIYOU", "Hi, \"you\"\nthere");
+        writer.finish(null);
+        assertEquals("Message Hash,Message\r\n12:0:HIYOU,\"Hi, \"\"you\"\"\nthere\"\r\n", csv.toString());
+
+        StringWriter json = new StringWriter();
+        writer = new ReportWriter(json, ReportWriter.Format.JSON_LINES);
+        writer.begin("Message Hash", "Message");
+        writer.row("12:0:HIYOU", "Tab\there \"quoted\" \\ \u0001");
+        writer.row(null, "x");
+        writer.finish(null);
+        assertEquals("{\"messageHash\":\"12:0:HIYOU\",\"message\":\"Tab\\there \\\"quoted\\\" \\\\ \\u0001\"}\n"
+                + "{\"messageHash\":null,\"message\":\"x\"}\n", json.toString());
+    }
+
+    @Test
+    public void testFileReportStreamsManyRows() throws Exception {
+        MessageStore store = new MessageStore(tempDir, 1_000_000);
+        for (int i = 0; i < 3000; i++) {
+            store.addSentMessage(new Message("+27831234567", "Message número " + i + " 😀", i), "alice");
+        }
+        Path file = tempDir.resolve("sent.csv");
+        try (ReportWriter writer = ReportWriter.toFile(file, ReportWriter.Format.CSV)) {
+            assertEquals(3000, store.writeSentReport(writer));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3001, lines.size());
+        assertEquals("Message Hash,Recipient,Message", lines.get(0));
+        assertTrue(lines.get(3000).endsWith(",+27831234567,Message número 2999 😀"));
+        store.close();
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.ScalableBloomFilter;
+import simpleloginsystem.User;
+import simpleloginsystem.UserRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Path;
+
+public class ScalableBloomFilterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGrowsWithoutFalseNegatives() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("user_" + i);
+        }
+        assertTrue(filter.getStageCount() > 1);
+        assertEquals(100_000, filter.getCount());
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("user_" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            falsePositives += filter.mightContain("other_" + i) ? 1 : 0;
+        }
+        // The stages are planned for 1% overall
+        assertTrue(falsePositives < 1_000, "false positives: " + falsePositives);
+
+        Path file = tempDir.resolve("filter.bloom");
+        filter.save(file, 42);
+        assertNull(ScalableBloomFilter.load(file, 41));
+        ScalableBloomFilter loaded = ScalableBloomFilter.load(file, 42);
+        assertEquals(filter.getStageCount(), loaded.getStageCount());
+        assertTrue(loaded.mightContain("user_99999"));
+    }
+
+    @Test
+    public void testRegistryAnswersMissingNamesFromFilter() throws Exception {
+        Path file = tempDir.resolve("users.jsonl");
+        UserRegistry registry = new UserRegistry(file);
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(registry.register(new User("First", "Last", "u_" + i, "Secret#123", "+27831234567")));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(registry.contains("x_" + i));
+        }
+        assertTrue(registry.getFilterRejections() > 9_800);
+        assertTrue(registry.getFalsePositiveRate() < 0.02);
+        registry.close();
+
+        // The saved filter is reused while the user file is unchanged
+        UserRegistry reopened = new UserRegistry(file);
+        assertEquals(registry.getFilter().getStageCount(), reopened.getFilter().getStageCount());
+        assertTrue(reopened.contains("u_4999"));
+        assertTrue(reopened.register(new User("First", "Last", "late", "Secret#123", "+27831234567")));
+        assertTrue(reopened.contains("late"));
+        reopened.close();
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import simpleloginsystem.SessionManager;
+import simpleloginsystem.TimerWheel;
+import simpleloginsystem.User;
+import simpleloginsystem.UserService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionManagerTest {
+    private static final long SECOND = 1000;
+    private final User user = new User("Keegan", "Miller", "k_mil", "Pass123!", "+27838884567");
+
+    @Test
+    public void testIdleAndAbsoluteExpiry() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        SessionManager sessions = new SessionManager(60 * SECOND, 300 * SECOND, now::get);
+        String idle = sessions.open(user);
+        String busy = sessions.open(user);
+        assertNotEquals(idle, busy);
+        assertEquals(2, sessions.getLiveSessions());
+
+        // busy is used every 50 seconds, idle never again
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(50 * SECOND);
+            assertSame(user, sessions.validate(busy));
+            sessions.expire();
+        }
+        assertNull(sessions.validate(idle));
+        assertEquals(1, sessions.getLiveSessions());
+
+        // Activity does not extend a session past its absolute lifetime
+        now.addAndGet(50 * SECOND);
+        sessions.expire();
+        assertEquals(0, sessions.getLiveSessions());
+        assertNull(sessions.validate(busy));
+
+        assertEquals(5, sessions.getHits());
+        assertEquals(2, sessions.getMisses());
+        assertEquals(2, sessions.getExpired());
+        assertEquals(5.0 / 7, sessions.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testEndedAndUnknownTokens() {
+        AtomicLong now = new AtomicLong(0);
+        SessionManager sessions = new SessionManager(60 * SECOND, 300 * SECOND, now::get);
+        String token = sessions.open(user);
+        assertTrue(sessions.end(token));
+        assertFalse(sessions.end(token));
+        assertNull(sessions.validate(token));
+        assertNull(sessions.validate("not-a-token"));
+        assertNull(sessions.validate(null));
+        now.addAndGet(120 * SECOND);
+        assertEquals(0, sessions.expire());
+    }
+
+    @Test
+    public void testWheelFiresOnlyDueTimers() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("soon", 25);
+        // Further away than one turn of the wheel
+        wheel.schedule("later", 500);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(30, (item, now) -> { fired.add(item); return -1; });
+        assertEquals(List.of("soon"), fired);
+        wheel.advance(490, (item, now) -> { fired.add(item); return -1; });
+        assertEquals(List.of("soon"), fired);
+        assertEquals(1, wheel.size());
+        // Extended once, then dropped
+        wheel.advance(500, (item, now) -> { fired.add(item); return fired.size() == 2 ? 700 : -1; });
+        wheel.advance(700, (item, now) -> { fired.add(item); return -1; });
+        assertEquals(List.of("soon", "later", "later"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testUserServiceSessions() {
+        UserService service = new UserService();
+        assertNull(service.startSession("k_mil", "wrong"));
+        String token = service.startSession("k_mil", "Pass123!");
+        assertEquals("Keegan Miller", service.getSessionUser(token).getFullName());
+        assertEquals(1, service.getSessions().getLiveSessions());
+        assertTrue(service.endSession(token));
+        assertNull(service.getSessionUser(token));
+        service.close();
+    }
+}
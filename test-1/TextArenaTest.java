@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageStore;
+import simpleloginsystem.TextArena;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Path;
+
+public class TextArenaTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testStoresAndDecodesUtf8() {
+        TextArena arena = new TextArena();
+        String text = "Héllo wörld, 你好 😀";
+        TextArena.Slice slice = arena.store(text);
+        assertEquals(text, slice.decode());
+        assertEquals(text.length(), slice.getCharLength());
+        assertTrue(arena.getUsedBytes() >= slice.getByteLength());
+        assertNull(arena.store(""));
+        assertNull(arena.store("x".repeat(TextArena.MAX_TEXT_BYTES + 1)));
+    }
+
+    @Test
+    public void testFreedSlotsAreReused() {
+        TextArena arena = new TextArena(TextArena.MAX_TEXT_BYTES);
+        TextArena.Slice first = arena.store("a".repeat(100));
+        arena.store("b".repeat(100));
+        long used = arena.getUsedBytes();
+        arena.free(first);
+        assertEquals(used - 112, arena.getUsedBytes());
+        assertEquals(112, arena.getFreeBytes());
+
+        TextArena.Slice reused = arena.store("c".repeat(97));
+        assertEquals("c".repeat(97), reused.decode());
+        assertEquals(0, arena.getFreeBytes());
+        assertEquals(TextArena.MAX_TEXT_BYTES, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testStoreKeepsTextOffHeapAndReclaimsOnDelete() {
+        TextArena arena = new TextArena();
+        MessageStore store = new MessageStore(tempDir, 1000, arena);
+        Message kept = new Message("+27831234567", "Keep this one", 0);
+        Message deleted = new Message("+27831234567", "Delete this one please", 1);
+        store.addStoredMessage(kept);
+        store.addStoredMessage(deleted);
+        long used = arena.getUsedBytes();
+        assertTrue(used > 0);
+        assertEquals("Keep this one", store.getStoredMessages().get(0).getMessageText());
+        assertEquals(22, deleted.getTextLength());
+
+        store.deleteByMessageHash(deleted.getMessageHash());
+        assertTrue(arena.getUsedBytes() < used);
+        // A caller still holding the deleted message can read its text
+        assertEquals("Delete this one please", deleted.getMessageText());
+        assertEquals("Keep this one", kept.getMessageText());
+        store.close();
+
+        MessageStore reopened = new MessageStore(tempDir, 1000, new TextArena());
+        assertEquals(1, reopened.getStoredMessages().size());
+        assertEquals("Keep this one", reopened.getStoredMessages().get(0).getMessageText());
+        reopened.close();
+    }
+}
@@ -0,0 +1,205 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.Message;
+import simpleloginsystem.MessageJournal;
+import simpleloginsystem.MessagePage;
+import simpleloginsystem.MessageStore;
+import simpleloginsystem.TextIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class TextIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static TextIndex sampleIndex() {
+        TextIndex index = new TextIndex();
+        index.add(10, "Dinner tonight at eight?");
+        index.add(20, "Did you get the cake for tonight");
+        index.add(30, "Cake is in the fridge, dinner is ready");
+        index.add(40, "Call me when you're home");
+        return index;
+    }
+
+    @Test
+    public void testTokenizerLowerCasesAndSplitsOnPunctuation() {
+        assertEquals(Set.of("you", "re", "home", "café", "2pm"), TextIndex.tokenize("You're HOME, Café @ 2pm!"));
+    }
+
+    @Test
+    public void testTermAndOrAndPrefixQueries() {
+        TextIndex index = sampleIndex();
+        assertArrayEquals(new long[] {10, 20}, index.search("tonight", -1, 10));
+        assertArrayEquals(new long[] {30}, index.search("cake dinner", -1, 10));
+        assertArrayEquals(new long[] {30}, index.search("cake AND dinner", -1, 10));
+        assertArrayEquals(new long[] {10, 20, 30}, index.search("dinner OR cake", -1, 10));
+        assertArrayEquals(new long[] {20, 40}, index.search("you", -1, 10));
+        assertArrayEquals(new long[] {10, 20}, index.search("din* OR did", -1, 2));
+        assertArrayEquals(new long[] {30}, index.search("fri* ready", -1, 10));
+        assertArrayEquals(new long[0], index.search("missing", -1, 10));
+        assertArrayEquals(new long[0], index.search("", -1, 10));
+
+        index.remove(30, "Cake is in the fridge, dinner is ready");
+        assertArrayEquals(new long[] {20}, index.search("cake", -1, 10));
+        assertArrayEquals(new long[] {20}, index.search("the", 10, 10));
+    }
+
+    @Test
+    public void testScatteredIdsStayInOrderThroughAddsAndRemoves() {
+        TextIndex index = new TextIndex();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(5_000) * 1_000_000_007L;
+            if (random.nextInt(3) == 0) {
+                if (expected.remove(id)) {
+                    index.remove(id, "common");
+                }
+            } else if (expected.add(id)) {
+                index.add(id, "common");
+            }
+        }
+        long[] ids = index.search("common", Long.MIN_VALUE + 1, Integer.MAX_VALUE);
+        assertEquals(expected.size(), ids.length);
+        int i = 0;
+        for (long id : expected) {
+            assertEquals(id, ids[i++]);
+        }
+        // Paging resumes inside a block
+        long middle = ids[ids.length / 2];
+        assertEquals(expected.higher(middle), index.search("comm*", middle, 1)[0]);
+    }
+
+    @Test
+    public void testPrefixQueryMergesTermsWithoutDuplicates() {
+        TextIndex index = new TextIndex();
+        for (long id = 1; id <= 300; id++) {
+            // Several matching terms per message, and each term in many messages
+            index.add(id * 7919 % 1000, "tag" + (id % 17) + " tag" + (id % 5) + " other");
+        }
+        long[] all = index.search("tag*", -1, 1000);
+        assertEquals(300, all.length);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i - 1] < all[i]);
+        }
+        assertArrayEquals(java.util.Arrays.copyOfRange(all, 100, 110), index.search("tag* other", all[99], 10));
+    }
+
+    @Test
+    public void testConcurrentWritersAndSearchesAgree() throws Exception {
+        TextIndex index = new TextIndex();
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int offset = w;
+            writers[w] = new Thread(() -> {
+                for (long i = 0; i < 5_000; i++) {
+                    long id = (i * writers.length + offset) * 1_000_000_007L % 999_999_937L;
+                    index.add(id, "shared word" + (i % 50) + " writer" + offset);
+                    if (i % 4 == 0) {
+                        index.remove(id, "shared word" + (i % 50) + " writer" + offset);
+                    }
+                }
+            });
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        // Pages stay ascending while the postings change underneath
+        while (writers[0].isAlive()) {
+            long[] page = index.search("shared OR wor*", -1, 200);
+            for (int i = 1; i < page.length; i++) {
+                assertTrue(page[i - 1] < page[i]);
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(15_000, index.size());
+        assertEquals(15_000, index.search("shared", -1, 100_000).length);
+        assertEquals(3_750, index.search("writer2", -1, 100_000).length);
+    }
+
+    @Test
+    public void testStoreSearchPagesAndFollowsDeletes() {
+        MessageStore store = new MessageStore(tempDir, 1_000_000);
+        List<Message> added = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Message msg = new Message("+27831234567", "Order " + i + " is ready for pickup", i);
+            added.add(msg);
+            if (i % 2 == 0) {
+                store.addSentMessage(msg, "alice");
+            } else {
+                store.addStoredMessage(msg);
+            }
+        }
+        store.addDisregardedMessage(new Message("+27831234567", "Disregarded pickup", 99));
+
+        List<Message> found = new ArrayList<>();
+        String token = null;
+        do {
+            MessagePage page = store.searchText("ready pick*", token, 10);
+            found.addAll(page.getMessages());
+            token = page.getContinuationToken();
+        } while (token != null);
+        assertEquals(25, found.size());
+
+        store.deleteByMessageHash(added.get(3).getMessageHash());
+        assertEquals(0, store.searchText("order 3", null, 10).getMessages().size());
+        assertEquals(1, store.searchText("order 4", null, 10).getMessages().size());
+        assertThrows(IllegalArgumentException.class, () -> store.searchText("ready", "bad", 10));
+        store.close();
+    }
+
+    @Test
+    public void testIndexIsSavedAndReusedAfterRestart() throws Exception {
+        MessageStore store = new MessageStore(tempDir, 1_000_000);
+        store.addSentMessage(new Message("+27831234567", "Meet at the station", 0), "alice");
+        store.addStoredMessage(new Message("+27831234568", "Station closed today", 1));
+        store.close();
+        Path file = tempDir.resolve(TextIndex.FILE_NAME);
+        assertTrue(Files.exists(file));
+
+        MessageStore reopened = new MessageStore(tempDir, 1_000_000);
+        assertEquals(2, reopened.searchText("station", null, 10).getMessages().size());
+        reopened.addStoredMessage(new Message("+27831234569", "Station reopened", 2));
+        reopened.close();
+
+        // A saved index that no longer matches the messages is ignored and rebuilt
+        Files.copy(file, tempDir.resolve("old-index"));
+        MessageStore third = new MessageStore(tempDir, 1_000_000);
+        third.deleteByMessageHash(third.getStoredMessages().get(1).getMessageHash());
+        third.close();
+        Files.copy(tempDir.resolve("old-index"), file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        MessageStore fourth = new MessageStore(tempDir, 1_000_000);
+        assertEquals(2, fourth.searchText("station", null, 10).getMessages().size());
+        fourth.close();
+    }
+
+    @Test
+    public void testJournalStoreSavesIndexOfStoredMessagesOnly() {
+        Path journalPath = tempDir.resolve("messages.jsonl");
+        MessageStore store = new MessageStore(new MessageJournal(journalPath, null));
+        store.addSentMessage(new Message("+27831234567", "Meet at the station", 0), "alice");
+        Message stored = new Message("+27831234568", "Station closed today", 1);
+        store.storeMessage(stored).join();
+        assertEquals(2, store.searchText("station", null, 10).getMessages().size());
+        store.close();
+        Path file = tempDir.resolve("messages.jsonl" + TextIndex.EXTENSION);
+        assertTrue(new TextIndex().load(file, TextIndex.checksum(1, TextIndex.mix(stored.getId()))));
+
+        // Sent messages are not reloaded from the journal, so the saved index must not have them
+        MessageStore reopened = new MessageStore(new MessageJournal(journalPath, null));
+        List<Message> found = reopened.searchText("station", null, 10).getMessages();
+        assertEquals(1, found.size());
+        assertEquals("Station closed today", found.get(0).getMessageText());
+        reopened.close();
+    }
+}
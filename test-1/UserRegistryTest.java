@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import simpleloginsystem.User;
+import simpleloginsystem.UserRegistry;
+import simpleloginsystem.UserService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class UserRegistryTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testUsersSurviveRestart() throws Exception {
+        Path file = tempDir.resolve("users.jsonl");
+        UserService service = new UserService(file);
+        assertTrue(service.registerUser(new User("Ada", "Lovelace", "a_lov", "Engine#1843", "+27831234567")));
+        assertFalse(service.registerUser(new User("Other", "Ada", "a_lov", "Engine#1843", "+27831234567")));
+        service.close();
+        // A partial line left by a crash mid-append
+        Files.write(file, "{\"username\":\"b_".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        UserService reopened = new UserService(file);
+        assertEquals("Ada Lovelace", reopened.loginUser("a_lov", "Engine#1843").getFullName());
+        assertNull(reopened.loginUser("a_lov", "wrong"));
+        assertNotNull(reopened.loginUser("k_mil", "Pass123!"));
+        assertTrue(reopened.usernameExists("a_lov"));
+        assertFalse(reopened.usernameExists("b_"));
+        reopened.close();
+
+        UserRegistry registry = new UserRegistry(file);
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getSkippedLines());
+        registry.close();
+    }
+
+    @Test
+    public void testConcurrentDuplicateRegistrationHasOneWinner() throws Exception {
+        Path file = tempDir.resolve("users.jsonl");
+        UserRegistry registry = new UserRegistry(file);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            String username = "u_" + (i % 1000);
+            results.add(pool.submit(() -> registry.register(
+                    new User("First", "Last", username, "Secret#123", "+27831234567"))));
+        }
+        int registered = 0;
+        for (Future<Boolean> result : results) {
+            registered += result.get() ? 1 : 0;
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        registry.close();
+
+        assertEquals(1000, registered);
+        assertEquals(1000, Files.readAllLines(file).size());
+        assertEquals(1000, new UserRegistry(file).size());
+    }
+}
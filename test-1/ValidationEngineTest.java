@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import simpleloginsystem.ValidationEngine;
+import simpleloginsystem.ValidationError;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.regex.Pattern;
+
+public class ValidationEngineTest {
+
+    @Test
+    public void testErrorCodes() {
+        assertEquals(ValidationError.VALID, ValidationEngine.checkUsername("k_mil"));
+        assertEquals(ValidationError.USERNAME_TOO_LONG, ValidationEngine.checkUsername("kyle_m"));
+        assertEquals(ValidationError.USERNAME_NO_UNDERSCORE, ValidationEngine.checkUsername("kmil"));
+        assertEquals(ValidationError.MISSING, ValidationEngine.checkUsername(null));
+
+        assertEquals(ValidationError.VALID, ValidationEngine.checkPassword("Pass123!"));
+        assertEquals(ValidationError.PASSWORD_TOO_SHORT, ValidationEngine.checkPassword("Pa1!"));
+        assertEquals(ValidationError.PASSWORD_NO_CAPITAL, ValidationEngine.checkPassword("pass123!"));
+        assertEquals(ValidationError.PASSWORD_NO_DIGIT, ValidationEngine.checkPassword("Password!"));
+        assertEquals(ValidationError.PASSWORD_NO_SPECIAL, ValidationEngine.checkPassword("Password1"));
+
+        assertEquals(ValidationError.VALID, ValidationEngine.checkCellNumber("+27838884567"));
+        assertEquals(ValidationError.NUMBER_NO_PLUS, ValidationEngine.checkCellNumber("27838884567"));
+        assertEquals(ValidationError.NUMBER_NOT_DIGITS, ValidationEngine.checkCellNumber("+2783888456a"));
+        assertEquals(ValidationError.NUMBER_BAD_LENGTH, ValidationEngine.checkCellNumber("+278388"));
+
+        assertEquals(ValidationError.VALID, ValidationEngine.checkRecipient("+2783888456"));
+        assertEquals(ValidationError.NUMBER_BAD_LENGTH, ValidationEngine.checkRecipient("+27838884567"));
+
+        assertEquals(ValidationError.VALID, ValidationEngine.checkMessage("x".repeat(250)));
+        assertEquals(ValidationError.MESSAGE_TOO_LONG, ValidationEngine.checkMessage("x".repeat(251)));
+    }
+
+    // Same answers as the regular expressions the checks replaced
+    @Test
+    public void testMatchesOldRegexChecks() {
+        Pattern capital = Pattern.compile("[A-Z]");
+        Pattern digit = Pattern.compile("[0-9]");
+        Pattern special = Pattern.compile("[^A-Za-z0-9]");
+        Pattern recipient = Pattern.compile("^\\+\\d{10}$");
+        String alphabet = "aZ9_!+ é";
+        java.util.Random random = new java.util.Random(7);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder sb = new StringBuilder(random.nextBoolean() ? "+" : "");
+            int length = random.nextInt(14);
+            for (int i = 0; i < length; i++) {
+                sb.append(random.nextInt(3) == 0 ? alphabet.charAt(random.nextInt(alphabet.length()))
+                        : (char) ('0' + random.nextInt(10)));
+            }
+            String input = sb.toString();
+            boolean password = input.length() >= 8 && capital.matcher(input).find()
+                    && digit.matcher(input).find() && special.matcher(input).find();
+            assertEquals(password, ValidationEngine.checkPassword(input).isValid(), input);
+            assertEquals(recipient.matcher(input).matches(), ValidationEngine.checkRecipient(input).isValid(), input);
+        }
+    }
+
+    @Test
+    public void testBatchCheck() {
+        String[] numbers = {"+27838884567", "0838884567", "+2783888456789", "+441234567890"};
+        ValidationError[] results = new ValidationError[numbers.length];
+        assertEquals(2, ValidationEngine.checkAll(ValidationEngine.Field.CELL_NUMBER, numbers, results));
+        assertArrayEquals(new ValidationError[] {ValidationError.VALID, ValidationError.NUMBER_NO_PLUS,
+                ValidationError.NUMBER_BAD_LENGTH, ValidationError.VALID}, results);
+        assertThrows(IllegalArgumentException.class,
+                () -> ValidationEngine.checkAll(ValidationEngine.Field.USERNAME, numbers, new ValidationError[1]));
+    }
+}